@@ -23,16 +23,29 @@ import javax.faces.context.FacesContext;
 import javax.faces.event.AjaxBehaviorEvent;
 import javax.servlet.http.Part;
 
+import com.server.client.catalog.CatalogPage;
+import com.server.client.catalog.FileCatalog;
+import com.server.client.catalog.OperationCategories;
+import com.server.client.index.ContentSearch;
+import com.server.client.ingest.IngestPipeline;
+import com.server.client.model.FileItem;
+import com.server.client.storage.UploadPublisher;
+import com.server.client.storage.UploadStore;
+import com.server.client.transfer.BatchCopyEngine;
+import com.server.client.transfer.CopyRequest;
+import com.server.client.transfer.CopyResult;
+
 @ManagedBean(name = "fileUploadBean")
 @ViewScoped
 public class FileUploadBean implements Serializable {
 
     private static final long serialVersionUID = 18888678L;
 
-    // Configurable upload directory - Change this path as needed
-    private static final String UPLOAD_DIRECTORY = "D:\\Example_Project_Doc\\uploads";
+    private static final String UPLOAD_DIRECTORY = UploadStore.UPLOAD_DIRECTORY;
     // Configurable default download directory - Change this path as needed
     private static final String DEFAULT_DOWNLOAD_DIRECTORY = "D:\\Example_Project_Doc\\download";
+    // Rows per page of the download panel's file list
+    private static final int DOWNLOAD_PAGE_SIZE = 50;
 
     private Part filePath;
     private String selectedCategory;
@@ -42,20 +55,33 @@ public class FileUploadBean implements Serializable {
 
     // Download filters
     private String downloadCategoryFilter;
+    // Words or keys that must appear inside the file (content index), e.g. a hostname
+    private String downloadContentQuery;
     
     // Save As fields - Fixed property names to match XHTML
     private String saveAsFileName;
     private String downloadLocationPath; // Changed from saveAsLocation
     private String selectedFileName;
     private UploadedItem selectedDownloadFile;
+    
+    // Multi-select batch copy
+    private List<String> batchFileNames = new ArrayList<>();
+    private List<CopyResult> batchResults = new ArrayList<>();
+    private boolean batchReported;
 
     private List<String> categories;
     private List<String> suggestedCategories = new ArrayList<>();
     private List<String> downloadSuggestedCategories = new ArrayList<>();
     private Map<String, String> categoryDeptMap;
+    // Facet counts shown next to the download suggestions and department
+    private Map<String, Integer> downloadCategoryCounts = new HashMap<>();
+    private int downloadDeptCount;
 
     private List<UploadedItem> uploadedFiles = new ArrayList<>();
     private List<UploadedItem> filteredDownloadFiles = new ArrayList<>();
+    // Current page of filteredDownloadFiles within all matches
+    private int downloadPageOffset;
+    private int downloadTotal;
 
     public FileUploadBean() {
         initializeCategories();
@@ -88,28 +114,11 @@ public class FileUploadBean implements Serializable {
     }
 
     private void initializeCategories() {
-        categories = new ArrayList<>();
-        categories.add("Payroll");
-        categories.add("Recruitment");
-        categories.add("Networking");
-        categories.add("Digital Marketing");
-        categories.add("Customer Support");
-        categories.add("Power Management");
-        categories.add("System Configuration");
-        categories.add("Network Monitoring");
+        categories = new ArrayList<>(OperationCategories.names());
     }
 
     private void initializeCategoryDeptMapping() {
-        categoryDeptMap = new HashMap<>();
-      
-        categoryDeptMap.put("Payroll", "Finance");
-        categoryDeptMap.put("Recruitment", "HR");
-        categoryDeptMap.put("Networking", "IT");
-        categoryDeptMap.put("Digital Marketing", "Marketing");
-        categoryDeptMap.put("Customer Support", "Operations");
-        categoryDeptMap.put("Power Management", "Infrastructure");
-        categoryDeptMap.put("System Configuration", "IT");
-        categoryDeptMap.put("Network Monitoring", "Operations");
+        categoryDeptMap = new HashMap<>(OperationCategories.deptMapping());
     }
     
     private void resetSuggestions() {
@@ -140,10 +149,20 @@ public class FileUploadBean implements Serializable {
                 .filter(category -> category.toLowerCase().contains(query))
                 .collect(Collectors.toList());
         }
+        updateDownloadCategoryCounts();
         
         updateFilteredDownloadFiles();
     }
 
+    // Counts come from the catalog's incrementally maintained facets - no scan of the file list
+    private void updateDownloadCategoryCounts() {
+        Map<String, Integer> facets = FileCatalog.getInstance().categoryCounts();
+        downloadCategoryCounts = new HashMap<>();
+        for (String category : downloadSuggestedCategories) {
+            downloadCategoryCounts.put(category, facets.getOrDefault(category, 0));
+        }
+    }
+
     // Populate DeptName when Category is chosen (Upload)
     public void populateDeptFromCategory() {
         selectedDept = (selectedCategory != null && categoryDeptMap.containsKey(selectedCategory)) 
@@ -159,6 +178,7 @@ public class FileUploadBean implements Serializable {
         ipAddress = (downloadCategoryFilter != null && categoryDeptMap.containsKey(downloadCategoryFilter)) 
             ? categoryDeptMap.get(downloadCategoryFilter) 
             : null;
+        downloadDeptCount = FileCatalog.getInstance().deptCount(ipAddress);
         
         // Clear suggestions after selection
         downloadSuggestedCategories.clear();
@@ -182,11 +202,13 @@ public class FileUploadBean implements Serializable {
                 return;
             }
 
-            File targetFile = saveUploadedFile(fileName);
+            UploadedItem uploadedItem = saveUploadedFile(fileName);
+            File targetFile = uploadedItem != null ? new File(uploadedItem.getFullPath()) : null;
             if (targetFile != null && targetFile.exists()) {
-                addUploadedFile(fileName, targetFile.getAbsolutePath());
+                addUploadedFile(uploadedItem);
                 resetUploadForm();
-                addSuccessMessage("File uploaded successfully: " + fileName);
+                addSuccessMessage("File uploaded successfully: " + fileName
+                    + " (version " + uploadedItem.getFile().getVersion() + ")");
                 System.out.println("File uploaded successfully: " + fileName);
             } else {
                 addErrorMessage("Failed to save uploaded file");
@@ -217,41 +239,59 @@ public class FileUploadBean implements Serializable {
         return isValid;
     }
 
-    private File saveUploadedFile(String fileName) throws IOException {
-        // Use configured upload directory
-        File targetFile = new File(UPLOAD_DIRECTORY, fileName);
-        
-        // Create parent directories if they don't exist
-        File parentDir = targetFile.getParentFile();
-        if (!parentDir.exists() && !parentDir.mkdirs()) {
-            throw new IOException("Failed to create upload directory: " + parentDir.getAbsolutePath());
-        }
+    private UploadedItem saveUploadedFile(String fileName) throws IOException {
+        // Stream into a temp name first; the final name only appears once the copy is complete.
+        // Every upload has its own temp file, so concurrent same-name uploads never interleave.
+        Path tempFile = UploadStore.createTempFile(fileName);
+        FileItem storedFile = new FileItem(fileName, filePath.getContentType(), 0, selectedCategory, null);
+        IngestPipeline pipeline = createIngestPipeline(fileName);
+        boolean published = false;
         
-        try (InputStream in = filePath.getInputStream();
-             FileOutputStream out = new FileOutputStream(targetFile)) {
-            
-            byte[] buffer = new byte[8192]; // Increased buffer size
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+        try {
+            // Single pass: the pipeline writes to disk and feeds every stage from the same buffer
+            try (InputStream in = filePath.getInputStream();
+                 FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+                pipeline.run(in, out, storedFile);
             }
-            out.flush(); // Ensure all data is written
             
-            System.out.println("File saved to: " + targetFile.getAbsolutePath());
-            return targetFile;
+            // Rename and catalog entry are published together under the per-name lock, so same-name
+            // uploads get consecutive versions and readers never see a partial file
+            UploadedItem uploadedItem = createUploadedItem(fileName, storedFile);
+            UploadPublisher.publish(tempFile, uploadedItem, pipeline, UploadPublisher.ANY_CHECKSUM);
+            published = true;
+            System.out.println("File saved to: " + uploadedItem.getFullPath()
+                + " (" + storedFile.getType() + ", " + storedFile.getFormattedSize()
+                + ", version " + storedFile.getVersion() + ")");
+            return uploadedItem;
+        } finally {
+            if (!published) {
+                UploadStore.discard(tempFile);
+                pipeline.abort();
+            }
         }
     }
 
-    private void addUploadedFile(String fileName, String fullPath) {
+    private IngestPipeline createIngestPipeline(String fileName) throws IOException {
+        String compress = FacesContext.getCurrentInstance().getExternalContext()
+            .getInitParameter("ingest.compressUploads");
+        return IngestPipeline.forUpload(fileName, Boolean.parseBoolean(compress));
+    }
+
+    private UploadedItem createUploadedItem(String fileName, FileItem storedFile) {
         UploadedItem uploadedItem = new UploadedItem(
             fileName, 
             selectedCategory, 
             selectedDept, 
             selectedTarget != null ? selectedTarget : "Configuration", 
             selectedDept,
-            fullPath // Store the full path
+            storedFile.getPath() // Store the full path
         );
-        
+        uploadedItem.setFile(storedFile);
+        return uploadedItem;
+    }
+
+    // The catalog entry was already published in saveUploadedFile(); this records it for the view
+    private void addUploadedFile(UploadedItem uploadedItem) {
         uploadedFiles.add(uploadedItem);
         updateFilteredDownloadFiles();
     }
@@ -264,27 +304,42 @@ public class FileUploadBean implements Serializable {
         suggestedCategories.clear();
     }
  
-    // Optimized filter update method
+    // Optimized filter update method - reads the shared catalog rather than this view's uploads.
+    // Filters changed, so start again from the first page.
     public void updateFilteredDownloadFiles() {
-        if (uploadedFiles == null || uploadedFiles.isEmpty()) {
-            filteredDownloadFiles = new ArrayList<>();
-            return;
+        downloadPageOffset = 0;
+        loadDownloadPage();
+    }
+
+    public void nextDownloadPage() {
+        downloadPageOffset += DOWNLOAD_PAGE_SIZE;
+        loadDownloadPage();
+    }
+
+    public void previousDownloadPage() {
+        downloadPageOffset = Math.max(0, downloadPageOffset - DOWNLOAD_PAGE_SIZE);
+        loadDownloadPage();
+    }
+
+    // Only the visible page is materialised, however many files match
+    private void loadDownloadPage() {
+        CatalogPage page = fetchDownloadPage();
+        if (page.getItems().isEmpty() && downloadPageOffset > 0) {
+            // Files were removed since the page was shown; fall back to the last page
+            downloadPageOffset = Math.max(0, (page.getTotal() - 1) / DOWNLOAD_PAGE_SIZE * DOWNLOAD_PAGE_SIZE);
+            page = fetchDownloadPage();
         }
-        
-        String categoryFilter = (downloadCategoryFilter != null) ? downloadCategoryFilter.toLowerCase() : "";
-        String ipFilter = (ipAddress != null) ? ipAddress.toLowerCase() : "";
-        
-        filteredDownloadFiles = uploadedFiles.stream()
-            .filter(file -> {
-                boolean matchesCategory = categoryFilter.isEmpty() 
-                    || file.getCategory().toLowerCase().contains(categoryFilter);
-                
-                boolean matchesIp = ipFilter.isEmpty() 
-                    || file.getIpAddress().toLowerCase().contains(ipFilter);
-                
-                return matchesCategory && matchesIp;
-            })
-            .collect(Collectors.toList());
+        filteredDownloadFiles = page.getItems();
+        downloadTotal = page.getTotal();
+    }
+
+    private CatalogPage fetchDownloadPage() {
+        if (downloadContentQuery != null && !downloadContentQuery.trim().isEmpty()) {
+            return ContentSearch.page(downloadContentQuery, downloadCategoryFilter, ipAddress,
+                downloadPageOffset, DOWNLOAD_PAGE_SIZE);
+        }
+        return FileCatalog.getInstance().filter(downloadCategoryFilter, ipAddress, downloadPageOffset,
+            DOWNLOAD_PAGE_SIZE);
     }
     
     // FIXED - File selection method without AJAX dependency
@@ -313,10 +368,7 @@ public class FileUploadBean implements Serializable {
             System.out.println("Looking for file: '" + trimmedFileName + "'");
             
             // Find the file in the uploaded files list
-            UploadedItem file = uploadedFiles.stream()
-                .filter(f -> f.getName().equals(trimmedFileName))
-                .findFirst()
-                .orElse(null);
+            UploadedItem file = FileCatalog.getInstance().find(trimmedFileName);
             
             if (file != null) {
                 // THIS IS THE KEY FIX - Set BOTH selectedDownloadFile AND saveAsFileName
@@ -332,12 +384,8 @@ public class FileUploadBean implements Serializable {
                 addInfoMessage("File selected for download: " + trimmedFileName);
                 
             } else {
-                System.out.println("✗ Could not find file in uploadedFiles: '" + trimmedFileName + "'");
-                System.out.println("Available files (" + uploadedFiles.size() + " total):");
-                for (int i = 0; i < uploadedFiles.size(); i++) {
-                    UploadedItem item = uploadedFiles.get(i);
-                    System.out.println("  [" + i + "] '" + item.getName() + "'");
-                }
+                System.out.println("✗ Could not find file in catalog: '" + trimmedFileName + "'");
+                System.out.println("Catalog holds " + FileCatalog.getInstance().size() + " files");
                 
                 // Clear selection if file not found
                 selectedDownloadFile = null;
@@ -424,10 +472,7 @@ public class FileUploadBean implements Serializable {
     }
 
     private UploadedItem findOriginalFile() {
-        UploadedItem found = uploadedFiles.stream()
-            .filter(f -> f.getName().equals(selectedFileName))
-            .findFirst()
-            .orElse(null);
+        UploadedItem found = FileCatalog.getInstance().find(selectedFileName);
         
         System.out.println("Looking for file: '" + selectedFileName + "'");
         System.out.println("Found file: " + (found != null ? found.getName() : "null"));
@@ -443,14 +488,7 @@ public class FileUploadBean implements Serializable {
                 System.out.println("Created download directory: " + downloadLocationPath);
             }
             
-            // Source file path
-            String sourcePath = originalFile.getFullPath();
-            if (sourcePath == null || sourcePath.trim().isEmpty()) {
-                // Fallback to upload directory + filename
-                sourcePath = UPLOAD_DIRECTORY + File.separator + originalFile.getName();
-            }
-            
-            Path sourceFile = Paths.get(sourcePath);
+            Path sourceFile = sourcePathOf(originalFile);
             Path targetFile = Paths.get(downloadLocationPath, saveAsFileName);
             
             System.out.println("Copying from: " + sourceFile.toAbsolutePath());
@@ -481,6 +519,80 @@ public class FileUploadBean implements Serializable {
         }
     }
     
+    private Path sourcePathOf(UploadedItem originalFile) {
+        String sourcePath = originalFile.getFullPath();
+        if (sourcePath == null || sourcePath.trim().isEmpty()) {
+            // Fallback to upload directory + filename
+            sourcePath = UPLOAD_DIRECTORY + File.separator + originalFile.getName();
+        }
+        return Paths.get(sourcePath);
+    }
+    
+    // Copy every file ticked in the list to downloadLocationPath in one go, in parallel and in the
+    // background. Files fail individually; the rest of the batch still completes.
+    public void executeBatchDownload() {
+        try {
+            if (batchFileNames.isEmpty()) {
+                addErrorMessage("Please tick at least one file to copy");
+                return;
+            }
+            if (downloadLocationPath == null || downloadLocationPath.trim().isEmpty()) {
+                addErrorMessage("Please specify a download location");
+                return;
+            }
+            
+            System.out.println("=== Starting batch download of " + batchFileNames.size() + " files ===");
+            List<CopyRequest> requests = new ArrayList<>();
+            List<CopyResult> missing = new ArrayList<>();
+            for (String name : batchFileNames) {
+                Path targetFile = Paths.get(downloadLocationPath.trim(), name);
+                UploadedItem item = FileCatalog.getInstance().find(name);
+                if (item != null) {
+                    requests.add(new CopyRequest(name, sourcePathOf(item), targetFile));
+                } else {
+                    CopyResult notFound = new CopyResult(name, targetFile.toString());
+                    notFound.fail("File is no longer in the catalog");
+                    missing.add(notFound);
+                }
+            }
+            
+            // Runs in the background; the page polls pollBatchProgress() for per-file status
+            batchResults = new ArrayList<>(BatchCopyEngine.getInstance().submitAll(requests, result -> {
+                if (result.getStatus() != CopyResult.Status.COPYING) {
+                    System.out.println("Batch copy " + result.getFileName() + ": " + result.getStatus()
+                        + (result.getMessage() != null ? " (" + result.getMessage() + ")" : ""));
+                }
+            }));
+            batchResults.addAll(missing);
+            batchReported = false;
+            batchFileNames = new ArrayList<>();
+            pollBatchProgress();
+        } catch (Exception ex) {
+            addErrorMessage("Error during batch download: " + ex.getMessage());
+            System.err.println("Error during batch download: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    // Ajax poll target while a batch is running; reports the outcome once, when the last file is done
+    public void pollBatchProgress() {
+        if (batchReported || batchResults.isEmpty() || isBatchRunning()) {
+            return;
+        }
+        batchReported = true;
+        long copied = batchResults.stream().filter(CopyResult::isSuccess).count();
+        if (copied == batchResults.size()) {
+            addSuccessMessage("Copied " + copied + " files to: " + downloadLocationPath);
+        } else {
+            addErrorMessage("Copied " + copied + " of " + batchResults.size() + " files to: "
+                + downloadLocationPath + " - see batch results for failures");
+        }
+    }
+
+    public boolean isBatchRunning() {
+        return batchResults.stream().anyMatch(r -> !r.isFinished());
+    }
+
     // Clear download selection after successful download
     private void clearDownloadSelection() {
         selectedFileName = null;
@@ -596,6 +708,14 @@ public class FileUploadBean implements Serializable {
         this.downloadCategoryFilter = downloadCategoryFilter;
     }
 
+    public String getDownloadContentQuery() {
+        return downloadContentQuery;
+    }
+
+    public void setDownloadContentQuery(String downloadContentQuery) {
+        this.downloadContentQuery = downloadContentQuery;
+    }
+
     public String getSaveAsFileName() {
         return saveAsFileName;
     }
@@ -616,6 +736,25 @@ public class FileUploadBean implements Serializable {
         return selectedFileName;
     }
 
+    // Ticked file names arrive from the page as one newline-separated hidden field
+    public String getBatchFileNamesValue() {
+        return String.join("\n", batchFileNames);
+    }
+
+    public void setBatchFileNamesValue(String value) {
+        batchFileNames = new ArrayList<>();
+        if (value == null) return;
+        for (String name : value.split("\n")) {
+            if (!name.trim().isEmpty() && !batchFileNames.contains(name.trim())) {
+                batchFileNames.add(name.trim());
+            }
+        }
+    }
+
+    public List<CopyResult> getBatchResults() {
+        return batchResults;
+    }
+
     public UploadedItem getSelectedDownloadFile() {
         return selectedDownloadFile;
     }
@@ -636,6 +775,14 @@ public class FileUploadBean implements Serializable {
         return downloadSuggestedCategories;
     }
     
+    public Map<String, Integer> getDownloadCategoryCounts() {
+        return downloadCategoryCounts;
+    }
+
+    public int getDownloadDeptCount() {
+        return downloadDeptCount;
+    }
+    
     public List<UploadedItem> getUploadedFiles() { 
         return uploadedFiles; 
     }
@@ -644,6 +791,27 @@ public class FileUploadBean implements Serializable {
         return filteredDownloadFiles;
     }
 
+    public int getDownloadTotal() {
+        return downloadTotal;
+    }
+
+    // 1-based range of the current page, for "51-100 of 1234"
+    public int getDownloadPageStart() {
+        return filteredDownloadFiles.isEmpty() ? 0 : downloadPageOffset + 1;
+    }
+
+    public int getDownloadPageEnd() {
+        return downloadPageOffset + filteredDownloadFiles.size();
+    }
+
+    public boolean isDownloadFirstPage() {
+        return downloadPageOffset == 0;
+    }
+
+    public boolean isDownloadLastPage() {
+        return downloadPageOffset + filteredDownloadFiles.size() >= downloadTotal;
+    }
+
     // Enhanced DTO for uploaded items
     public static class UploadedItem {
         private String name;
@@ -652,6 +820,7 @@ public class FileUploadBean implements Serializable {
         private String targetObject;
         private String ipAddress;
         private String fullPath; // Added to store the complete file path
+        private FileItem file; // Type, size and checksum recorded at ingest
 
         public UploadedItem(String name, String category, String dept, String targetObject, String ipAddress, String fullPath) {
             this.name = name;
@@ -694,5 +863,13 @@ public class FileUploadBean implements Serializable {
         public void setFullPath(String fullPath) {
             this.fullPath = fullPath;
         }
+        
+        public FileItem getFile() {
+            return file;
+        }
+        
+        public void setFile(FileItem file) {
+            this.file = file;
+        }
     }
 }
\ No newline at end of file
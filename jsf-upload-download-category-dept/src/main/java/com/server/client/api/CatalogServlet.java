@@ -0,0 +1,186 @@
+package com.server.client.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.catalog.CatalogPage;
+import com.server.client.catalog.FileCatalog;
+import com.server.client.catalog.OperationCategories;
+import com.server.client.index.ContentIndex;
+import com.server.client.index.ContentSearch;
+
+// Stateless JSON view of the file catalog. Bypasses the Faces lifecycle entirely (no view state,
+// no session) so scripts and page JavaScript can list, filter and suggest cheaply.
+//
+//   GET /api/files?category=..&dept=..&offset=..&limit=..   filtered file listing
+//   GET /api/files/suggest?q=..                             category typeahead with facet counts
+//   GET /api/files/facets                                   file counts per category, dept and target
+//   GET /api/files/search?q=..&category=..&dept=..&offset=..&limit=..
+//                                                           files whose content contains all terms
+@WebServlet(name = "CatalogServlet", urlPatterns = {"/api/files", "/api/files/*"})
+public class CatalogServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final String STARTUP_NONCE = Long.toString(System.currentTimeMillis(), 36);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null || pathInfo.equals("/")) {
+            handleList(request, response);
+        } else if (pathInfo.equals("/suggest")) {
+            handleSuggest(request, response);
+        } else if (pathInfo.equals("/search")) {
+            handleSearch(request, response);
+        } else if (pathInfo.equals("/facets")) {
+            handleFacets(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private void handleList(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileCatalog catalog = FileCatalog.getInstance();
+        if (notModified(request, response, Long.toString(catalog.getVersion()))) {
+            return;
+        }
+
+        int offset = parseInt(request.getParameter("offset"), 0, 0, Integer.MAX_VALUE);
+        int limit = parseInt(request.getParameter("limit"), DEFAULT_LIMIT, 0, MAX_LIMIT);
+        // Only the requested page is materialised; the rest of the matches are just counted
+        writeJson(response, pageJson(catalog.filter(request.getParameter("category"), request.getParameter("dept"),
+            offset, limit)));
+    }
+
+    private void handleSuggest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileCatalog catalog = FileCatalog.getInstance();
+        if (notModified(request, response, Long.toString(catalog.getVersion()))) {
+            return;
+        }
+
+        Map<String, Integer> counts = catalog.categoryCounts();
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("fields").beginArray().value("category").value("dept").value("count").endArray()
+            .name("rows").beginArray();
+        for (String category : OperationCategories.suggest(request.getParameter("q"))) {
+            json.beginArray()
+                .value(category)
+                .value(OperationCategories.deptFor(category))
+                .value(counts.getOrDefault(category, 0))
+                .endArray();
+        }
+        json.endArray().endObject();
+
+        writeJson(response, json);
+    }
+
+    // Served from the incrementally maintained facet counters; no row is scanned
+    private void handleFacets(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileCatalog catalog = FileCatalog.getInstance();
+        if (notModified(request, response, Long.toString(catalog.getVersion()))) {
+            return;
+        }
+
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("fields").beginArray().value("facet").value("value").value("count").endArray()
+            .name("rows").beginArray();
+        facetRows(json, "category", catalog.categoryCounts());
+        facetRows(json, "dept", catalog.deptCounts());
+        facetRows(json, "target", catalog.targetCounts());
+        json.endArray().endObject();
+
+        writeJson(response, json);
+    }
+
+    private void facetRows(JsonWriter json, String facet, Map<String, Integer> counts) {
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(counts).entrySet()) {
+            json.beginArray().value(facet).value(entry.getKey()).value(entry.getValue()).endArray();
+        }
+    }
+
+    private void handleSearch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String query = request.getParameter("q");
+        if (query == null || query.trim().isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "q is required");
+            return;
+        }
+        // The index is updated after the catalog (and may lag behind it), so the catalog version
+        // alone would let a search answered in between keep validating after the index caught
+        // up. Both versions are read before the query runs, so the tag never claims newer
+        // results than the body holds.
+        FileCatalog catalog = FileCatalog.getInstance();
+        if (notModified(request, response, catalog.getVersion() + "-" + ContentIndex.getInstance().getVersion())) {
+            return;
+        }
+
+        int offset = parseInt(request.getParameter("offset"), 0, 0, Integer.MAX_VALUE);
+        int limit = parseInt(request.getParameter("limit"), DEFAULT_LIMIT, 0, MAX_LIMIT);
+        writeJson(response, pageJson(ContentSearch.page(query, request.getParameter("category"),
+            request.getParameter("dept"), offset, limit)));
+    }
+
+    // Column header plus positional rows keeps the payload close to CSV size
+    private JsonWriter pageJson(CatalogPage page) {
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("total").value(page.getTotal())
+            .name("fields").beginArray()
+                .value("name").value("category").value("dept").value("target")
+            .endArray()
+            .name("rows").beginArray();
+        for (UploadedItem item : page.getItems()) {
+            json.beginArray()
+                .value(item.getName())
+                .value(item.getCategory())
+                .value(item.getDept())
+                .value(item.getTargetObject())
+                .endArray();
+        }
+        return json.endArray().endObject();
+    }
+
+    // The catalog version changes on every upload/removal, so it is a valid validator for any
+    // response derived from it. Clients revalidate each time and get a bodiless 304 when unchanged.
+    // The version counter restarts with the application, so the tag also carries the startup
+    // time; otherwise a tag cached before a redeploy could match a different catalog.
+    private boolean notModified(HttpServletRequest request, HttpServletResponse response, String version) {
+        String etag = "\"c" + STARTUP_NONCE + "-" + version + "\"";
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("ETag", etag);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    private void writeJson(HttpServletResponse response, JsonWriter json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private int parseInt(String value, int defaultValue, int min, int max) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return Math.max(min, Math.min(max, parsed));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.server.client.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.catalog.FileCatalog;
+import com.server.client.delta.BlockSignature;
+import com.server.client.delta.DeltaApplier;
+import com.server.client.delta.DeltaFormatException;
+import com.server.client.ingest.IngestPipeline;
+import com.server.client.model.FileItem;
+import com.server.client.storage.UploadPublisher;
+import com.server.client.storage.UploadStore;
+import com.server.client.storage.VersionConflictException;
+
+// rsync-style delta uploads for files that are already stored, so iterative edits of large
+// configuration files only send (and the server only writes) the changed blocks.
+//
+//   GET  /api/delta/signature?name=..&blockSize=..   block signature of the current version
+//   POST /api/delta/upload?name=..                   delta body (see DeltaFormat); rebuilds and
+//                                                    publishes the next version
+//
+// The delta carries the SHA-256 of the file its signature was taken from, and the SHA-256 the
+// rebuilt file must have. If the stored file has changed since (another upload, an eviction and
+// re-upload, a redeploy), or the rebuilt bytes do not hash as expected, the request fails with
+// 409 and the client should fetch a fresh signature. Version numbers are not used for this
+// check because they can repeat.
+@WebServlet(name = "DeltaServlet", urlPatterns = {"/api/delta/*"})
+public class DeltaServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    // Same limit as multipart uploads in web.xml
+    private static final long MAX_FILE_SIZE = 52428800L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("/signature".equals(request.getPathInfo())) {
+            handleSignature(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("/upload".equals(request.getPathInfo())) {
+            handleUpload(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private void handleSignature(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = request.getParameter("name");
+        int blockSize = parseBlockSize(request.getParameter("blockSize"));
+        if (name == null || blockSize < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "name and a valid blockSize are required");
+            return;
+        }
+
+        // Open under the name lock so the version number and the bytes we read belong together;
+        // a publish afterwards renames a new file in but our open handle keeps the old one
+        InputStream in;
+        int version;
+        String checksum;
+        Lock nameLock = UploadStore.lockFor(name);
+        nameLock.lock();
+        try {
+            UploadedItem entry = FileCatalog.getInstance().find(name);
+            if (entry == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "No stored file named " + name);
+                return;
+            }
+            version = UploadPublisher.currentVersion(entry);
+            checksum = UploadPublisher.currentChecksum(entry);
+            if (checksum == null) {
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                    name + " has no recorded checksum; upload it in full once before sending deltas");
+                return;
+            }
+            in = new BufferedInputStream(Files.newInputStream(pathOf(entry)));
+        } finally {
+            nameLock.unlock();
+        }
+
+        String etag = "\"s" + checksum + "-" + blockSize + "\"";
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("ETag", etag);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            in.close();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        BlockSignature signature;
+        try {
+            signature = BlockSignature.compute(in, blockSize);
+        } finally {
+            in.close();
+        }
+        if (!checksum.equals(signature.getFileChecksum())) {
+            // Changed on disk outside the application; a delta against it could never be verified
+            response.sendError(HttpServletResponse.SC_CONFLICT, "Stored file " + name + " does not match its recorded checksum");
+            return;
+        }
+        response.setContentType("application/octet-stream");
+        response.setHeader("X-File-Version", String.valueOf(version));
+        try (OutputStream out = new BufferedOutputStream(response.getOutputStream())) {
+            signature.writeTo(out);
+        }
+    }
+
+    private void handleUpload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = request.getParameter("name");
+        if (name == null || name.trim().isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "name is required");
+            return;
+        }
+
+        InputStream delta = new BufferedInputStream(request.getInputStream());
+        DeltaApplier.Header header;
+        try {
+            header = DeltaApplier.readHeader(delta);
+        } catch (DeltaFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        // Pin the base version: check it is current and open it under the name lock
+        UploadedItem base;
+        FileChannel baseChannel;
+        Lock nameLock = UploadStore.lockFor(name);
+        nameLock.lock();
+        try {
+            base = FileCatalog.getInstance().find(name);
+            if (base == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "No stored file named " + name);
+                return;
+            }
+            String currentChecksum = UploadPublisher.currentChecksum(base);
+            if (!header.getBaseChecksum().equals(currentChecksum)) {
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                    "Delta is based on content " + header.getBaseChecksum() + " but the stored file has changed");
+                return;
+            }
+            baseChannel = FileChannel.open(pathOf(base), StandardOpenOption.READ);
+        } finally {
+            nameLock.unlock();
+        }
+
+        try (FileChannel baseFile = baseChannel) {
+            applyAndPublish(name, base, header, delta, baseFile, response);
+        }
+    }
+
+    private void applyAndPublish(String name, UploadedItem base, DeltaApplier.Header header, InputStream delta,
+            FileChannel baseFile, HttpServletResponse response) throws IOException {
+        Path tempFile = UploadStore.createTempFile(name);
+        FileItem storedFile = new FileItem(name, null, 0, base.getCategory(), null);
+        IngestPipeline pipeline = IngestPipeline.forUpload(name,
+            Boolean.parseBoolean(getServletContext().getInitParameter("ingest.compressUploads")));
+        DeltaApplier applier = new DeltaApplier(MAX_FILE_SIZE);
+        boolean published = false;
+
+        try {
+            // The rebuilt bytes go through the same single-pass ingest stages as a form upload
+            try (OutputStream out = pipeline.stream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                applier.apply(header, delta, baseFile, out);
+            } catch (DeltaFormatException e) {
+                // Only client mistakes are 400; server-side write failures (disk full...) propagate as 500
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid delta: " + e.getMessage());
+                return;
+            }
+            pipeline.finish(storedFile);
+            // Whole-file check, as rsync does: catches a base that differs from what was signed
+            if (!header.getTargetChecksum().equals(storedFile.getChecksum())) {
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                    "Rebuilt file does not match the expected checksum; fetch a fresh signature and retry");
+                return;
+            }
+
+            UploadedItem entry = new UploadedItem(name, base.getCategory(), base.getDept(),
+                base.getTargetObject(), base.getIpAddress(), null);
+            entry.setFile(storedFile);
+            int version = UploadPublisher.publish(tempFile, entry, pipeline, header.getBaseChecksum());
+            published = true;
+            System.out.println("Delta upload of " + name + " published as version " + version + ": "
+                + applier.getCopiedBlocks() + " blocks reused, " + applier.getLiteralBytes() + " literal bytes");
+
+            JsonWriter json = new JsonWriter().beginObject()
+                .name("name").value(name)
+                .name("version").value(version)
+                .name("checksum").value(storedFile.getChecksum())
+                .name("size").value(storedFile.getSize())
+                .name("copiedBlocks").value(applier.getCopiedBlocks())
+                .name("literalBytes").value(applier.getLiteralBytes())
+                .endObject();
+            byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        } catch (VersionConflictException e) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, e.getMessage());
+        } finally {
+            if (!published) {
+                UploadStore.discard(tempFile);
+                pipeline.abort();
+            }
+        }
+    }
+
+    private Path pathOf(UploadedItem entry) {
+        String fullPath = entry.getFullPath();
+        return (fullPath != null && !fullPath.trim().isEmpty())
+            ? Paths.get(fullPath)
+            : UploadStore.resolve(entry.getName());
+    }
+
+    // -1 when out of range or unparseable
+    private int parseBlockSize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return BlockSignature.DEFAULT_BLOCK_SIZE;
+        }
+        try {
+            int blockSize = Integer.parseInt(value.trim());
+            return (blockSize >= BlockSignature.MIN_BLOCK_SIZE && blockSize <= BlockSignature.MAX_BLOCK_SIZE)
+                ? blockSize : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
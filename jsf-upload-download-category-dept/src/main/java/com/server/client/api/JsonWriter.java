@@ -0,0 +1,107 @@
+package com.server.client.api;
+
+// Minimal streaming JSON builder for the catalog API; avoids pulling in a JSON library
+// for what are flat arrays of strings and numbers.
+final class JsonWriter {
+
+    private final StringBuilder out = new StringBuilder(256);
+    // One flag per open container: true while the next element is the first one
+    private boolean[] first = new boolean[8];
+    private int depth;
+
+    JsonWriter beginObject() {
+        separator();
+        out.append('{');
+        push();
+        return this;
+    }
+
+    JsonWriter endObject() {
+        depth--;
+        out.append('}');
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separator();
+        out.append('[');
+        push();
+        return this;
+    }
+
+    JsonWriter endArray() {
+        depth--;
+        out.append(']');
+        return this;
+    }
+
+    JsonWriter name(String name) {
+        separator();
+        string(name);
+        out.append(':');
+        // The value that follows the name must not emit another separator
+        first[depth - 1] = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void push() {
+        if (depth == first.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(first, 0, grown, 0, depth);
+            first = grown;
+        }
+        first[depth++] = true;
+    }
+
+    private void separator() {
+        if (depth == 0) return;
+        if (first[depth - 1]) {
+            first[depth - 1] = false;
+        } else {
+            out.append(',');
+        }
+    }
+
+    private void string(String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c == '<' || c == '>' || c == '&') {
+                        // Control characters plus HTML-significant ones so responses are safe to inline
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
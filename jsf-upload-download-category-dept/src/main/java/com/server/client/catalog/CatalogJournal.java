@@ -0,0 +1,213 @@
+package com.server.client.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.model.FileItem;
+
+// Append-only log of catalog mutations, replayed on startup so the catalog (and with it the
+// janitor's retention/quota accounting and the published version numbers) survives a restart.
+// Records: 'P' publish (replace every row of the name with the given entry), 'R' remove name,
+// and 'A' one row of a compacted snapshot: once the log holds many more records than live rows
+// it is rewritten as one 'A' per row, which replays without the per-record name lookup of 'P'.
+// After a failed write the file may end in a partial record, after which replay would stop, so
+// nothing more is appended to it; the next mutation rewrites it from the rows instead.
+// Not thread-safe; guarded by the FileCatalog lock.
+final class CatalogJournal {
+
+    private static final byte OP_ADD = 'A';
+    private static final byte OP_PUBLISH = 'P';
+    private static final byte OP_REMOVE = 'R';
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final Path file;
+    private DataOutputStream out;
+    private int records;
+    // A write failed part way; the file must be rewritten before it is appended to again
+    private boolean broken;
+
+    CatalogJournal(Path file) {
+        this.file = file;
+    }
+
+    void replay(CompactCatalog rows) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                if (op == OP_ADD) {
+                    rows.add(readItem(in));
+                } else if (op == OP_PUBLISH) {
+                    UploadedItem item = readItem(in);
+                    rows.removeAll(item.getName());
+                    rows.add(item);
+                } else if (op == OP_REMOVE) {
+                    rows.removeAll(in.readUTF());
+                } else {
+                    throw new IOException("Corrupt catalog journal");
+                }
+                records++;
+            }
+        } catch (NoSuchFileException e) {
+            // First start
+        } catch (EOFException e) {
+            // Last record was cut short by a crash; everything before it is intact
+        } catch (IOException e) {
+            System.err.println("Could not read catalog journal " + file + ": " + e.getMessage());
+        }
+        System.out.println("Catalog loaded: " + rows.size() + " files");
+    }
+
+    void publish(UploadedItem item, CompactCatalog rows) {
+        append(OP_PUBLISH, item, rows);
+    }
+
+    private void append(byte op, UploadedItem item, CompactCatalog rows) {
+        if (broken) {
+            repair(rows);
+            return;
+        }
+        try {
+            DataOutputStream log = open();
+            log.write(op);
+            writeItem(log, item);
+            log.flush();
+            afterRecord(rows);
+        } catch (IOException e) {
+            System.err.println("Could not journal catalog entry " + item.getName() + ": " + e.getMessage());
+            fail();
+        }
+    }
+
+    void remove(String name, CompactCatalog rows) {
+        if (broken) {
+            repair(rows);
+            return;
+        }
+        try {
+            DataOutputStream log = open();
+            log.write(OP_REMOVE);
+            log.writeUTF(name);
+            log.flush();
+            afterRecord(rows);
+        } catch (IOException e) {
+            System.err.println("Could not journal catalog removal of " + name + ": " + e.getMessage());
+            fail();
+        }
+    }
+
+    // Rows already include the mutation being journaled, so the rewrite records it too
+    void repair(CompactCatalog rows) {
+        if (!broken) return;
+        try {
+            rewrite(rows.all());
+            broken = false;
+            System.out.println("Catalog journal rewritten after an earlier write failure");
+        } catch (IOException e) {
+            System.err.println("Could not rewrite catalog journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void fail() {
+        broken = true;
+        close();
+    }
+
+    private void afterRecord(CompactCatalog rows) throws IOException {
+        records++;
+        if (records > MIN_COMPACT_RECORDS && records > 2 * rows.size()) {
+            rewrite(rows.all());
+        }
+    }
+
+    private void rewrite(List<UploadedItem> items) throws IOException {
+        close();
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling("." + file.getFileName() + ".part");
+        try (DataOutputStream log = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            for (UploadedItem item : items) {
+                log.write(OP_ADD);
+                writeItem(log, item);
+            }
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        records = items.size();
+    }
+
+    private DataOutputStream open() throws IOException {
+        if (out == null) {
+            Files.createDirectories(file.getParent());
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        return out;
+    }
+
+    void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Could not close catalog journal: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    private static void writeItem(DataOutputStream log, UploadedItem item) throws IOException {
+        log.writeUTF(item.getName());
+        writeNullable(log, item.getCategory());
+        writeNullable(log, item.getDept());
+        writeNullable(log, item.getTargetObject());
+        writeNullable(log, item.getIpAddress());
+        writeNullable(log, item.getFullPath());
+
+        FileItem file = item.getFile();
+        log.writeBoolean(file != null);
+        if (file != null) {
+            writeNullable(log, file.getType());
+            log.writeLong(file.getSize());
+            log.writeLong(file.getUploadTime());
+            log.writeInt(file.getVersion());
+            writeNullable(log, file.getChecksum());
+        }
+    }
+
+    private static UploadedItem readItem(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        UploadedItem item = new UploadedItem(name, readNullable(in), readNullable(in), readNullable(in),
+            readNullable(in), readNullable(in));
+
+        if (in.readBoolean()) {
+            FileItem file = new FileItem(name, readNullable(in), in.readLong(), item.getCategory(), item.getFullPath());
+            file.setUploadTime(in.readLong());
+            file.setVersion(in.readInt());
+            file.setChecksum(readNullable(in));
+            item.setFile(file);
+        }
+        return item;
+    }
+
+    private static void writeNullable(DataOutputStream log, String value) throws IOException {
+        log.writeBoolean(value != null);
+        if (value != null) log.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.server.client.catalog;
+
+import java.util.List;
+
+import com.server.client.FileUploadBean.UploadedItem;
+
+// One page of a catalog query: the total number of matching files plus only the requested rows
+public final class CatalogPage {
+
+    private final int total;
+    private final List<UploadedItem> items;
+
+    CatalogPage(int total, List<UploadedItem> items) {
+        this.total = total;
+        this.items = items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<UploadedItem> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,405 @@
+package com.server.client.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.model.FileItem;
+
+// Columnar storage behind FileCatalog. Instead of one UploadedItem (+ FileItem + ~8 Strings) per
+// file, each file is a row index into packed primitive arrays:
+//  - low-cardinality strings (category, dept, target, type, directory) are dictionary ids
+//  - names are UTF-8 bytes in one shared byte[] addressed by offset/length
+//  - sizes and upload times are longs, versions ints, checksums raw bytes
+// UploadedItem objects are only materialised for rows a caller actually asks for.
+// Removed rows are tombstoned and squeezed out once they outnumber the live ones.
+// Not thread-safe; guarded by the FileCatalog lock.
+final class CompactCatalog {
+
+    private static final int INITIAL_ROWS = 64;
+    private static final int CHECKSUM_BYTES = 32; // SHA-256
+
+    private final StringDictionary categories = new StringDictionary();
+    // Shared by the dept and ipAddress columns, which hold the same department names
+    private final StringDictionary depts = new StringDictionary();
+    private final StringDictionary targets = new StringDictionary();
+    private final StringDictionary types = new StringDictionary();
+    // Everything in fullPath before the file name, i.e. the upload directory plus separator
+    private final StringDictionary directories = new StringDictionary();
+
+    private byte[] nameData = new byte[INITIAL_ROWS * 16];
+    private int nameDataLength;
+    private int[] nameOffsets = new int[INITIAL_ROWS];
+    private int[] nameLengths = new int[INITIAL_ROWS];
+    private int[] nameHashes = new int[INITIAL_ROWS];
+
+    private int[] categoryIds = new int[INITIAL_ROWS];
+    private int[] deptIds = new int[INITIAL_ROWS];
+    private int[] targetIds = new int[INITIAL_ROWS];
+    private int[] ipIds = new int[INITIAL_ROWS];
+    private int[] typeIds = new int[INITIAL_ROWS];
+    private int[] directoryIds = new int[INITIAL_ROWS];
+    private long[] sizes = new long[INITIAL_ROWS];
+    private long[] uploadTimes = new long[INITIAL_ROWS];
+    private int[] versions = new int[INITIAL_ROWS];
+    private byte[] checksums = new byte[INITIAL_ROWS * CHECKSUM_BYTES];
+
+    private final BitSet live = new BitSet();
+    private final BitSet hasFile = new BitSet();
+    private final BitSet hasChecksum = new BitSet();
+    // Rare rows whose fullPath does not end with their name
+    private final Map<Integer, String> pathOverrides = new HashMap<>();
+
+    private int rowCount;
+    private int liveCount;
+
+    // Facet counters indexed by dictionary id
+    private int[] categoryFacets = new int[8];
+    private int[] deptFacets = new int[8];
+    private int[] targetFacets = new int[8];
+
+    void add(UploadedItem item) {
+        ensureRowCapacity(rowCount + 1);
+        int row = rowCount++;
+
+        String name = item.getName();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureNameCapacity(nameDataLength + nameBytes.length);
+        System.arraycopy(nameBytes, 0, nameData, nameDataLength, nameBytes.length);
+        nameOffsets[row] = nameDataLength;
+        nameLengths[row] = nameBytes.length;
+        nameHashes[row] = name.hashCode();
+        nameDataLength += nameBytes.length;
+
+        categoryIds[row] = categories.encode(item.getCategory());
+        deptIds[row] = depts.encode(item.getDept());
+        targetIds[row] = targets.encode(item.getTargetObject());
+        ipIds[row] = depts.encode(item.getIpAddress());
+
+        String fullPath = item.getFullPath();
+        if (fullPath == null) {
+            directoryIds[row] = StringDictionary.NULL_ID;
+        } else if (fullPath.endsWith(name)) {
+            directoryIds[row] = directories.encode(fullPath.substring(0, fullPath.length() - name.length()));
+        } else {
+            directoryIds[row] = StringDictionary.NULL_ID;
+            pathOverrides.put(row, fullPath);
+        }
+
+        FileItem file = item.getFile();
+        if (file != null) {
+            hasFile.set(row);
+            typeIds[row] = types.encode(file.getType());
+            sizes[row] = file.getSize();
+            uploadTimes[row] = file.getUploadTime();
+            versions[row] = file.getVersion();
+            if (encodeChecksum(file.getChecksum(), row)) {
+                hasChecksum.set(row);
+            }
+        } else {
+            typeIds[row] = StringDictionary.NULL_ID;
+            versions[row] = 0;
+        }
+
+        live.set(row);
+        liveCount++;
+        adjustFacets(row, 1);
+    }
+
+    int removeAll(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = name.hashCode();
+        int removed = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (nameEquals(row, hash, nameBytes)) {
+                live.clear(row);
+                liveCount--;
+                adjustFacets(row, -1);
+                removed++;
+            }
+        }
+        if (removed > 0 && rowCount > INITIAL_ROWS && rowCount - liveCount > liveCount) {
+            compact();
+        }
+        return removed;
+    }
+
+    // Highest published version among live rows of this name, 0 if none
+    int latestVersion(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = name.hashCode();
+        int latest = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (nameEquals(row, hash, nameBytes)) {
+                latest = Math.max(latest, versions[row]);
+            }
+        }
+        return latest;
+    }
+
+    UploadedItem findFirst(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = name.hashCode();
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (nameEquals(row, hash, nameBytes)) {
+                return materialize(row);
+            }
+        }
+        return null;
+    }
+
+    // Both queries already trimmed and lower-cased; empty means "no constraint". The string test
+    // runs once per distinct dictionary value, the per-row test is an int array lookup.
+    // Counts every match but only materialises matches [offset, offset + limit) into page
+    int filter(String categoryQuery, String deptQuery, int offset, int limit, List<UploadedItem> page) {
+        boolean[] categoryMatch = categoryQuery.isEmpty() ? null : categories.matchContains(categoryQuery);
+        boolean[] deptMatch = deptQuery.isEmpty() ? null : depts.matchContains(deptQuery);
+
+        int total = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (matches(categoryMatch, categoryIds[row]) && matches(deptMatch, ipIds[row])) {
+                if (total >= offset && total - offset < limit) {
+                    page.add(materialize(row));
+                }
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Like the paged filter, restricted to the named files and ordered by their position in
+    // rankedNames (e.g. content search hits). One pass over the rows; a name is only decoded
+    // when its hash matches one of the wanted names.
+    int filterNamed(List<String> rankedNames, String categoryQuery, String deptQuery, int offset, int limit,
+            List<UploadedItem> page) {
+        Map<String, Integer> ranks = new HashMap<>();
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < rankedNames.size(); i++) {
+            ranks.putIfAbsent(rankedNames.get(i), i);
+            hashes.add(rankedNames.get(i).hashCode());
+        }
+        boolean[] categoryMatch = categoryQuery.isEmpty() ? null : categories.matchContains(categoryQuery);
+        boolean[] deptMatch = deptQuery.isEmpty() ? null : depts.matchContains(deptQuery);
+
+        // rank in the high half, row in the low half, so sorting orders by rank
+        long[] hits = new long[Math.max(1, Math.min(rankedNames.size(), liveCount))];
+        int total = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (!hashes.contains(nameHashes[row])
+                    || !matches(categoryMatch, categoryIds[row]) || !matches(deptMatch, ipIds[row])) {
+                continue;
+            }
+            Integer rank = ranks.get(new String(nameData, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8));
+            if (rank != null) {
+                if (total == hits.length) hits = Arrays.copyOf(hits, total * 2);
+                hits[total++] = ((long) rank << 32) | row;
+            }
+        }
+        Arrays.sort(hits, 0, total);
+        for (int i = offset; i < total && i - offset < limit; i++) {
+            page.add(materialize((int) hits[i]));
+        }
+        return total;
+    }
+
+    List<UploadedItem> all() {
+        List<UploadedItem> result = new ArrayList<>(liveCount);
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            result.add(materialize(row));
+        }
+        return result;
+    }
+
+    int size() {
+        return liveCount;
+    }
+
+    int deptCount(String dept) {
+        return facet(deptFacets, depts.lookup(dept));
+    }
+
+    Map<String, Integer> categoryCounts() {
+        return facetMap(categoryFacets, categories);
+    }
+
+    Map<String, Integer> deptCounts() {
+        return facetMap(deptFacets, depts);
+    }
+
+    Map<String, Integer> targetCounts() {
+        return facetMap(targetFacets, targets);
+    }
+
+    private UploadedItem materialize(int row) {
+        String name = new String(nameData, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8);
+        String category = categories.decode(categoryIds[row]);
+        String fullPath = directoryIds[row] != StringDictionary.NULL_ID
+            ? directories.decode(directoryIds[row]) + name
+            : pathOverrides.get(row);
+
+        UploadedItem item = new UploadedItem(
+            name,
+            category,
+            depts.decode(deptIds[row]),
+            targets.decode(targetIds[row]),
+            depts.decode(ipIds[row]),
+            fullPath);
+
+        if (hasFile.get(row)) {
+            FileItem file = new FileItem(name, types.decode(typeIds[row]), sizes[row], category, fullPath);
+            file.setUploadTime(uploadTimes[row]);
+            file.setVersion(versions[row]);
+            if (hasChecksum.get(row)) {
+                file.setChecksum(decodeChecksum(row));
+            }
+            item.setFile(file);
+        }
+        return item;
+    }
+
+    private boolean nameEquals(int row, int hash, byte[] nameBytes) {
+        if (nameHashes[row] != hash || nameLengths[row] != nameBytes.length) {
+            return false;
+        }
+        int offset = nameOffsets[row];
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (nameData[offset + i] != nameBytes[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(boolean[] idMatches, int id) {
+        return idMatches == null || (id != StringDictionary.NULL_ID && idMatches[id]);
+    }
+
+    private void adjustFacets(int row, int delta) {
+        categoryFacets = adjust(categoryFacets, categoryIds[row], delta);
+        deptFacets = adjust(deptFacets, deptIds[row], delta);
+        targetFacets = adjust(targetFacets, targetIds[row], delta);
+    }
+
+    private static int[] adjust(int[] facets, int id, int delta) {
+        if (id == StringDictionary.NULL_ID) return facets;
+        if (id >= facets.length) {
+            facets = Arrays.copyOf(facets, Math.max(id + 1, facets.length * 2));
+        }
+        facets[id] += delta;
+        return facets;
+    }
+
+    private static int facet(int[] facets, int id) {
+        return (id == StringDictionary.NULL_ID || id >= facets.length) ? 0 : facets[id];
+    }
+
+    private static Map<String, Integer> facetMap(int[] facets, StringDictionary dictionary) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int id = 0; id < facets.length && id < dictionary.size(); id++) {
+            if (facets[id] > 0) {
+                counts.put(dictionary.decode(id), facets[id]);
+            }
+        }
+        return counts;
+    }
+
+    private boolean encodeChecksum(String hex, int row) {
+        if (hex == null || hex.length() != CHECKSUM_BYTES * 2) {
+            return false;
+        }
+        int base = row * CHECKSUM_BYTES;
+        for (int i = 0; i < CHECKSUM_BYTES; i++) {
+            int hi = Character.digit(hex.charAt(i * 2), 16);
+            int lo = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) return false;
+            checksums[base + i] = (byte) ((hi << 4) | lo);
+        }
+        return true;
+    }
+
+    private String decodeChecksum(int row) {
+        char[] hex = new char[CHECKSUM_BYTES * 2];
+        int base = row * CHECKSUM_BYTES;
+        for (int i = 0; i < CHECKSUM_BYTES; i++) {
+            hex[i * 2] = Character.forDigit((checksums[base + i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(checksums[base + i] & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    private void ensureRowCapacity(int rows) {
+        if (rows <= nameOffsets.length) return;
+
+        int capacity = Math.max(rows, nameOffsets.length * 2);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        nameHashes = Arrays.copyOf(nameHashes, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        deptIds = Arrays.copyOf(deptIds, capacity);
+        targetIds = Arrays.copyOf(targetIds, capacity);
+        ipIds = Arrays.copyOf(ipIds, capacity);
+        typeIds = Arrays.copyOf(typeIds, capacity);
+        directoryIds = Arrays.copyOf(directoryIds, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        uploadTimes = Arrays.copyOf(uploadTimes, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        checksums = Arrays.copyOf(checksums, capacity * CHECKSUM_BYTES);
+    }
+
+    private void ensureNameCapacity(int bytes) {
+        if (bytes > nameData.length) {
+            nameData = Arrays.copyOf(nameData, Math.max(bytes, nameData.length * 2));
+        }
+    }
+
+    // Slide live rows down over the tombstones, preserving insertion order
+    private void compact() {
+        byte[] compactNames = new byte[Math.max(nameDataLength, 16)];
+        int compactNameLength = 0;
+        Map<Integer, String> movedOverrides = new HashMap<>();
+        BitSet movedFile = new BitSet();
+        BitSet movedChecksum = new BitSet();
+
+        int to = 0;
+        for (int from = live.nextSetBit(0); from >= 0; from = live.nextSetBit(from + 1), to++) {
+            System.arraycopy(nameData, nameOffsets[from], compactNames, compactNameLength, nameLengths[from]);
+            nameOffsets[to] = compactNameLength;
+            nameLengths[to] = nameLengths[from];
+            compactNameLength += nameLengths[from];
+
+            nameHashes[to] = nameHashes[from];
+            categoryIds[to] = categoryIds[from];
+            deptIds[to] = deptIds[from];
+            targetIds[to] = targetIds[from];
+            ipIds[to] = ipIds[from];
+            typeIds[to] = typeIds[from];
+            directoryIds[to] = directoryIds[from];
+            sizes[to] = sizes[from];
+            uploadTimes[to] = uploadTimes[from];
+            versions[to] = versions[from];
+            System.arraycopy(checksums, from * CHECKSUM_BYTES, checksums, to * CHECKSUM_BYTES, CHECKSUM_BYTES);
+
+            if (hasFile.get(from)) movedFile.set(to);
+            if (hasChecksum.get(from)) movedChecksum.set(to);
+            String override = pathOverrides.get(from);
+            if (override != null) movedOverrides.put(to, override);
+        }
+
+        nameData = compactNames;
+        nameDataLength = compactNameLength;
+        rowCount = to;
+        live.clear();
+        live.set(0, to);
+        hasFile.clear();
+        hasFile.or(movedFile);
+        hasChecksum.clear();
+        hasChecksum.or(movedChecksum);
+        pathOverrides.clear();
+        pathOverrides.putAll(movedOverrides);
+    }
+}
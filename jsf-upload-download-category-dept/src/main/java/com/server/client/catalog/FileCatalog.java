@@ -0,0 +1,181 @@
+package com.server.client.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.storage.UploadStore;
+
+// Application-wide catalog of uploaded files. The view-scoped bean publishes into it and the
+// JSON API reads from it, so both see the same set of files without a Faces round trip.
+// Returned UploadedItems are fresh copies materialised from compact storage; mutating them
+// does not change the catalog. Mutations are journaled (see CatalogJournal) and replayed on
+// startup, so files uploaded before a restart stay listed, versioned and under retention.
+public final class FileCatalog {
+
+    private static final FileCatalog INSTANCE = new FileCatalog();
+
+    // Columnar, dictionary-encoded rows; see CompactCatalog. Also maintains the facet counters.
+    private final CompactCatalog rows = new CompactCatalog();
+    private final CatalogJournal journal = new CatalogJournal(UploadStore.catalogJournal());
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Bumped on every mutation; used as the HTTP validator for cached API responses
+    private final AtomicLong version = new AtomicLong();
+
+    private FileCatalog() {
+        journal.replay(rows);
+    }
+
+    public static FileCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    // Replace every entry of this name with the new version. Caller should hold
+    // UploadStore.lockFor(name) so the catalog and the file on disk move together.
+    public int publish(UploadedItem item) {
+        lock.writeLock().lock();
+        try {
+            int newVersion = rows.latestVersion(item.getName()) + 1;
+            if (item.getFile() != null) {
+                item.getFile().setVersion(newVersion);
+            }
+            rows.removeAll(item.getName());
+            rows.add(item);
+            journal.publish(item, rows);
+            version.incrementAndGet();
+            return newVersion;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String name) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = name != null && rows.removeAll(name) > 0;
+            if (removed) {
+                journal.remove(name, rows);
+                version.incrementAndGet();
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public UploadedItem find(String name) {
+        if (name == null) return null;
+
+        lock.readLock().lock();
+        try {
+            return rows.findFirst(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Case-insensitive "contains" match on category and department, as in the download panel.
+    // Counts all matches but only builds UploadedItems for the requested page.
+    public CatalogPage filter(String categoryFilter, String deptFilter, int offset, int limit) {
+        String category = (categoryFilter != null) ? categoryFilter.trim().toLowerCase() : "";
+        String dept = (deptFilter != null) ? deptFilter.trim().toLowerCase() : "";
+
+        lock.readLock().lock();
+        try {
+            List<UploadedItem> page = new ArrayList<>();
+            int total = rows.filter(category, dept, offset, limit, page);
+            return new CatalogPage(total, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Paged filter over the given names only, in their order; unknown names are skipped
+    public CatalogPage filterNamed(List<String> rankedNames, String categoryFilter, String deptFilter,
+            int offset, int limit) {
+        String category = (categoryFilter != null) ? categoryFilter.trim().toLowerCase() : "";
+        String dept = (deptFilter != null) ? deptFilter.trim().toLowerCase() : "";
+
+        lock.readLock().lock();
+        try {
+            List<UploadedItem> page = new ArrayList<>();
+            int total = rows.filterNamed(rankedNames, category, dept, offset, limit, page);
+            return new CatalogPage(total, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UploadedItem> snapshot() {
+        lock.readLock().lock();
+        try {
+            return rows.all();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deptCount(String dept) {
+        lock.readLock().lock();
+        try {
+            return rows.deptCount(dept);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Integer> categoryCounts() {
+        lock.readLock().lock();
+        try {
+            return rows.categoryCounts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Integer> deptCounts() {
+        lock.readLock().lock();
+        try {
+            return rows.deptCounts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Integer> targetCounts() {
+        lock.readLock().lock();
+        try {
+            return rows.targetCounts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Releases the journal file on undeploy, first rewriting it if a write had failed
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            journal.repair(rows);
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.server.client.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Operation categories and their owning departments, shared by the JSF bean and the JSON API
+public final class OperationCategories {
+
+    private static final List<String> CATEGORIES;
+    private static final Map<String, String> CATEGORY_DEPT_MAP;
+
+    static {
+        List<String> categories = new ArrayList<>();
+        categories.add("Payroll");
+        categories.add("Recruitment");
+        categories.add("Networking");
+        categories.add("Digital Marketing");
+        categories.add("Customer Support");
+        categories.add("Power Management");
+        categories.add("System Configuration");
+        categories.add("Network Monitoring");
+        CATEGORIES = Collections.unmodifiableList(categories);
+
+        Map<String, String> categoryDeptMap = new HashMap<>();
+        categoryDeptMap.put("Payroll", "Finance");
+        categoryDeptMap.put("Recruitment", "HR");
+        categoryDeptMap.put("Networking", "IT");
+        categoryDeptMap.put("Digital Marketing", "Marketing");
+        categoryDeptMap.put("Customer Support", "Operations");
+        categoryDeptMap.put("Power Management", "Infrastructure");
+        categoryDeptMap.put("System Configuration", "IT");
+        categoryDeptMap.put("Network Monitoring", "Operations");
+        CATEGORY_DEPT_MAP = Collections.unmodifiableMap(categoryDeptMap);
+    }
+
+    private OperationCategories() {
+    }
+
+    public static List<String> names() {
+        return CATEGORIES;
+    }
+
+    public static Map<String, String> deptMapping() {
+        return CATEGORY_DEPT_MAP;
+    }
+
+    public static String deptFor(String category) {
+        return category != null ? CATEGORY_DEPT_MAP.get(category) : null;
+    }
+
+    // Case-insensitive "contains" match, same semantics as the typeahead in the UI
+    public static List<String> suggest(String query) {
+        String q = (query != null) ? query.trim().toLowerCase() : "";
+        List<String> result = new ArrayList<>();
+        if (q.isEmpty()) {
+            return result;
+        }
+        for (String category : CATEGORIES) {
+            if (category.toLowerCase().contains(q)) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
+}
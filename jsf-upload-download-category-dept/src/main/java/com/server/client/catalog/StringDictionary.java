@@ -0,0 +1,54 @@
+package com.server.client.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps each distinct value of a low-cardinality column to a small dense int id, so rows store an
+// int instead of a String reference and filters compare ids instead of strings.
+// Not thread-safe; guarded by the FileCatalog lock.
+final class StringDictionary {
+
+    static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(String value) {
+        if (value == null) return NULL_ID;
+
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    int lookup(String value) {
+        if (value == null) return NULL_ID;
+
+        Integer id = ids.get(value);
+        return id != null ? id : NULL_ID;
+    }
+
+    String decode(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    // Ids whose value contains the (already lower-cased) query, case-insensitively.
+    // Evaluated once per distinct value rather than once per row.
+    boolean[] matchContains(String lowerQuery) {
+        boolean[] matches = new boolean[values.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = values.get(i).toLowerCase().contains(lowerQuery);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,162 @@
+package com.server.client.delta;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Per-block weak (rolling) and strong (MD5) checksums of a stored file version. Clients fetch this
+// to find which parts of their new version the server already has. It also carries the SHA-256 of
+// the whole file, which the client echoes in its delta so the server only applies it to exactly
+// the bytes the signature was taken from (version numbers can repeat; content hashes do not).
+//
+// Wire format (big-endian):
+//   "RSIG" | 32 bytes SHA-256 of the file | int blockSize | long fileLength | int blockCount
+//   blockCount x ( int weak | 16 bytes md5 )
+public final class BlockSignature {
+
+    static final int MAGIC = 0x52534947; // "RSIG"
+    static final int STRONG_LENGTH = 16;
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    public static final int MIN_BLOCK_SIZE = 512;
+    public static final int MAX_BLOCK_SIZE = 1 << 20;
+
+    private final byte[] fileDigest;
+    private final int blockSize;
+    private final long fileLength;
+    private final int[] weak;
+    private final byte[] strong;
+
+    private BlockSignature(byte[] fileDigest, int blockSize, long fileLength, int[] weak, byte[] strong) {
+        this.fileDigest = fileDigest;
+        this.blockSize = blockSize;
+        this.fileLength = fileLength;
+        this.weak = weak;
+        this.strong = strong;
+    }
+
+    public static BlockSignature compute(InputStream in, int blockSize) throws IOException {
+        MessageDigest md5 = md5();
+        MessageDigest sha256 = DeltaFormat.sha256();
+        byte[] block = new byte[blockSize];
+        int[] weak = new int[16];
+        byte[] strong = new byte[16 * STRONG_LENGTH];
+        int count = 0;
+        long length = 0;
+
+        int filled;
+        while ((filled = readBlock(in, block)) > 0) {
+            if (count == weak.length) {
+                weak = Arrays.copyOf(weak, count * 2);
+                strong = Arrays.copyOf(strong, count * 2 * STRONG_LENGTH);
+            }
+            weak[count] = RollingChecksum.of(block, 0, filled);
+            sha256.update(block, 0, filled);
+            md5.update(block, 0, filled);
+            System.arraycopy(md5.digest(), 0, strong, count * STRONG_LENGTH, STRONG_LENGTH);
+            count++;
+            length += filled;
+            if (filled < blockSize) break;
+        }
+        return new BlockSignature(sha256.digest(), blockSize, length,
+            Arrays.copyOf(weak, count), Arrays.copyOf(strong, count * STRONG_LENGTH));
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.write(fileDigest);
+        data.writeInt(blockSize);
+        data.writeLong(fileLength);
+        data.writeInt(weak.length);
+        for (int i = 0; i < weak.length; i++) {
+            data.writeInt(weak[i]);
+            data.write(strong, i * STRONG_LENGTH, STRONG_LENGTH);
+        }
+        data.flush();
+    }
+
+    public static BlockSignature readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a block signature");
+        }
+        byte[] fileDigest = new byte[DeltaFormat.DIGEST_LENGTH];
+        data.readFully(fileDigest);
+        int blockSize = data.readInt();
+        long fileLength = data.readLong();
+        int count = data.readInt();
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE || fileLength < 0
+                || count != (fileLength + blockSize - 1) / blockSize) {
+            throw new IOException("Corrupt block signature header");
+        }
+        int[] weak = new int[count];
+        byte[] strong = new byte[count * STRONG_LENGTH];
+        for (int i = 0; i < count; i++) {
+            weak[i] = data.readInt();
+            data.readFully(strong, i * STRONG_LENGTH, STRONG_LENGTH);
+        }
+        return new BlockSignature(fileDigest, blockSize, fileLength, weak, strong);
+    }
+
+    // Lowercase hex SHA-256 of the signed file, comparable with FileItem.checksum
+    public String getFileChecksum() {
+        return DeltaFormat.hex(fileDigest);
+    }
+
+    byte[] fileDigest() {
+        return fileDigest.clone();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public int getBlockCount() {
+        return weak.length;
+    }
+
+    int weak(int block) {
+        return weak[block];
+    }
+
+    boolean strongEquals(int block, byte[] digest) {
+        int base = block * STRONG_LENGTH;
+        for (int i = 0; i < STRONG_LENGTH; i++) {
+            if (strong[base + i] != digest[i]) return false;
+        }
+        return true;
+    }
+
+    // Length of a block; only the last one can be short
+    int blockLength(int block) {
+        return (int) Math.min(blockSize, fileLength - (long) block * blockSize);
+    }
+
+    static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private static int readBlock(InputStream in, byte[] block) throws IOException {
+        int filled = 0;
+        while (filled < block.length) {
+            int n = in.read(block, filled, block.length - filled);
+            if (n < 0) break;
+            filled += n;
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,154 @@
+package com.server.client.delta;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Server side of the delta protocol: rebuilds the new version by interleaving blocks read from
+// the stored base file with the literal bytes carried in the delta.
+public final class DeltaApplier {
+
+    private final long maxOutputBytes;
+
+    private long copiedBlocks;
+    private long literalBytes;
+    private long outputBytes;
+
+    public DeltaApplier(long maxOutputBytes) {
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    // Reads the header only, so the caller can check the base checksum before applying
+    // Format problems are reported as DeltaFormatException; any other IOException is a real I/O failure
+    public static Header readHeader(InputStream delta) throws IOException {
+        DataInputStream in = new DataInputStream(delta);
+        try {
+            if (in.readInt() != DeltaFormat.MAGIC) {
+                throw new DeltaFormatException("Not a delta stream");
+            }
+            int blockSize = in.readInt();
+            if (blockSize < BlockSignature.MIN_BLOCK_SIZE || blockSize > BlockSignature.MAX_BLOCK_SIZE) {
+                throw new DeltaFormatException("Invalid delta block size: " + blockSize);
+            }
+            byte[] baseDigest = new byte[DeltaFormat.DIGEST_LENGTH];
+            in.readFully(baseDigest);
+            byte[] targetDigest = new byte[DeltaFormat.DIGEST_LENGTH];
+            in.readFully(targetDigest);
+            return new Header(blockSize, DeltaFormat.hex(baseDigest), DeltaFormat.hex(targetDigest));
+        } catch (EOFException e) {
+            throw new DeltaFormatException("Delta header truncated");
+        }
+    }
+
+    // Invalid ops are reported as DeltaFormatException; failures reading the base or writing out
+    // propagate as plain IOExceptions
+    public void apply(Header header, InputStream delta, FileChannel base, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(delta);
+        int blockSize = header.getBlockSize();
+        long baseLength = base.size();
+        long baseBlocks = (baseLength + blockSize - 1) / blockSize;
+        ByteBuffer blockBuffer = ByteBuffer.allocate(blockSize);
+        byte[] literal = new byte[DeltaFormat.MAX_LITERAL];
+
+        while (true) {
+            byte op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                throw new DeltaFormatException("Delta stream truncated (no END op)");
+            }
+
+            if (op == DeltaFormat.OP_END) {
+                break;
+            } else if (op == DeltaFormat.OP_COPY) {
+                int block = readInt(in);
+                if (block < 0 || block >= baseBlocks) {
+                    throw new DeltaFormatException("Delta references block " + block + " of " + baseBlocks);
+                }
+                long position = (long) block * blockSize;
+                int length = (int) Math.min(blockSize, baseLength - position);
+                blockBuffer.clear().limit(length);
+                while (blockBuffer.hasRemaining()) {
+                    if (base.read(blockBuffer, position + blockBuffer.position()) < 0) {
+                        throw new IOException("Base file shrank while applying delta");
+                    }
+                }
+                write(out, blockBuffer.array(), length);
+                copiedBlocks++;
+            } else if (op == DeltaFormat.OP_LITERAL) {
+                int length = readInt(in);
+                if (length <= 0 || length > DeltaFormat.MAX_LITERAL) {
+                    throw new DeltaFormatException("Invalid literal length: " + length);
+                }
+                try {
+                    in.readFully(literal, 0, length);
+                } catch (EOFException e) {
+                    throw new DeltaFormatException("Delta stream truncated inside a literal");
+                }
+                write(out, literal, length);
+                literalBytes += length;
+            } else {
+                throw new DeltaFormatException("Unknown delta op: " + op);
+            }
+        }
+        out.flush();
+    }
+
+    private void write(OutputStream out, byte[] buffer, int length) throws IOException {
+        outputBytes += length;
+        if (outputBytes > maxOutputBytes) {
+            throw new DeltaFormatException("Rebuilt file exceeds the " + maxOutputBytes + " byte upload limit");
+        }
+        out.write(buffer, 0, length);
+    }
+
+    private static int readInt(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (EOFException e) {
+            throw new DeltaFormatException("Delta stream truncated inside an op");
+        }
+    }
+
+    public long getCopiedBlocks() {
+        return copiedBlocks;
+    }
+
+    public long getLiteralBytes() {
+        return literalBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public static final class Header {
+        private final int blockSize;
+        private final String baseChecksum;
+        private final String targetChecksum;
+
+        Header(int blockSize, String baseChecksum, String targetChecksum) {
+            this.blockSize = blockSize;
+            this.baseChecksum = baseChecksum;
+            this.targetChecksum = targetChecksum;
+        }
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        // Lowercase hex SHA-256 of the file the delta was computed against
+        public String getBaseChecksum() {
+            return baseChecksum;
+        }
+
+        // Lowercase hex SHA-256 the rebuilt file must have
+        public String getTargetChecksum() {
+            return targetChecksum;
+        }
+    }
+}
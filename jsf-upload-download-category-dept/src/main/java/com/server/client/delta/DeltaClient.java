@@ -0,0 +1,101 @@
+package com.server.client.delta;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Command-line client for delta uploads: fetches the signature of the stored version, encodes the
+// local file against it and posts only the delta. Uses nothing outside the JDK, so it runs straight
+// from the exploded WAR:
+//
+//   java -cp target/jsf-upload-download-cate-dept/WEB-INF/classes \
+//        com.server.client.delta.DeltaClient http://host:8080/app config.xml ./config.xml [blockSize]
+//
+// Exit status: 0 published, 2 the stored file changed meanwhile (run again), 1 any other failure.
+public final class DeltaClient {
+
+    private DeltaClient() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: DeltaClient <application url> <stored file name> <local file> [blockSize]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        String name = args[1];
+        Path localFile = Paths.get(args[2]);
+        int blockSize = args.length == 4 ? Integer.parseInt(args[3]) : BlockSignature.DEFAULT_BLOCK_SIZE;
+
+        try {
+            System.exit(upload(baseUrl, name, localFile, blockSize));
+        } catch (IOException e) {
+            System.err.println("Delta upload failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static int upload(String applicationUrl, String name, Path localFile, int blockSize) throws IOException {
+        String baseUrl = applicationUrl.endsWith("/") ? applicationUrl.substring(0, applicationUrl.length() - 1) : applicationUrl;
+        String query = "?name=" + URLEncoder.encode(name, "UTF-8");
+
+        HttpURLConnection get = (HttpURLConnection) new URL(baseUrl + "/api/delta/signature" + query
+            + "&blockSize=" + blockSize).openConnection();
+        if (get.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            return report(get);
+        }
+        BlockSignature signature;
+        try (InputStream in = new BufferedInputStream(get.getInputStream())) {
+            signature = BlockSignature.readFrom(in);
+        }
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(localFile))) {
+            DeltaEncoder.encode(signature, in, delta);
+        }
+        System.out.println("Delta is " + delta.size() + " bytes for a " + Files.size(localFile) + " byte file");
+
+        HttpURLConnection post = (HttpURLConnection) new URL(baseUrl + "/api/delta/upload" + query).openConnection();
+        post.setRequestMethod("POST");
+        post.setDoOutput(true);
+        post.setRequestProperty("Content-Type", "application/octet-stream");
+        post.setFixedLengthStreamingMode(delta.size());
+        try (OutputStream out = post.getOutputStream()) {
+            delta.writeTo(out);
+        }
+        return report(post);
+    }
+
+    private static int report(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String text = body != null ? readText(body) : "";
+        if (status == HttpURLConnection.HTTP_OK) {
+            System.out.println(text);
+            return 0;
+        }
+        System.err.println("HTTP " + status + ": " + text);
+        return status == HttpURLConnection.HTTP_CONFLICT ? 2 : 1;
+    }
+
+    private static String readText(InputStream in) throws IOException {
+        try (InputStream body = in) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = body.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+            }
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.server.client.delta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Client side of the delta protocol: given the server's signature of the stored version and the
+// new content, emits COPY ops for blocks the server already has (found at any byte offset via the
+// rolling checksum) and LITERAL ops for everything else. The header names the base by the
+// signature's SHA-256 and the expected result by its own SHA-256. Used by DeltaClient; the new
+// content is held in memory, which is fine within the upload size limit.
+public final class DeltaEncoder {
+
+    private DeltaEncoder() {
+    }
+
+    public static void encode(BlockSignature signature, InputStream newContent, OutputStream deltaOut) throws IOException {
+        byte[] data = readAll(newContent);
+        int blockSize = signature.getBlockSize();
+        int blockCount = signature.getBlockCount();
+
+        // Weak checksum -> candidate full-size blocks; the short tail block is matched separately
+        Map<Integer, List<Integer>> blocksByWeak = new HashMap<>();
+        for (int block = 0; block < blockCount; block++) {
+            if (signature.blockLength(block) == blockSize) {
+                blocksByWeak.computeIfAbsent(signature.weak(block), k -> new ArrayList<>(1)).add(block);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(deltaOut);
+        out.writeInt(DeltaFormat.MAGIC);
+        out.writeInt(blockSize);
+        out.write(signature.fileDigest());
+        out.write(DeltaFormat.sha256().digest(data));
+
+        MessageDigest md5 = BlockSignature.md5();
+        RollingChecksum rolling = new RollingChecksum();
+        int literalStart = 0;
+        int position = 0;
+        boolean windowValid = false;
+
+        while (position + blockSize <= data.length) {
+            if (!windowValid) {
+                rolling.reset(data, position, blockSize);
+                windowValid = true;
+            }
+
+            int match = -1;
+            List<Integer> candidates = blocksByWeak.get(rolling.value());
+            if (candidates != null) {
+                md5.update(data, position, blockSize);
+                byte[] digest = md5.digest();
+                for (int block : candidates) {
+                    if (signature.strongEquals(block, digest)) {
+                        match = block;
+                        break;
+                    }
+                }
+            }
+
+            if (match >= 0) {
+                writeLiteral(out, data, literalStart, position);
+                out.writeByte(DeltaFormat.OP_COPY);
+                out.writeInt(match);
+                position += blockSize;
+                literalStart = position;
+                windowValid = false;
+            } else {
+                if (position + blockSize < data.length) {
+                    rolling.roll(data[position], data[position + blockSize]);
+                }
+                position++;
+            }
+        }
+
+        // An unchanged short last block can still be copied
+        int tailBlock = blockCount - 1;
+        int tailLength = tailBlock >= 0 ? signature.blockLength(tailBlock) : 0;
+        if (tailLength > 0 && tailLength < blockSize && data.length - literalStart >= tailLength) {
+            int tailStart = data.length - tailLength;
+            md5.update(data, tailStart, tailLength);
+            if (RollingChecksum.of(data, tailStart, tailLength) == signature.weak(tailBlock)
+                    && signature.strongEquals(tailBlock, md5.digest())) {
+                writeLiteral(out, data, literalStart, tailStart);
+                out.writeByte(DeltaFormat.OP_COPY);
+                out.writeInt(tailBlock);
+                literalStart = data.length;
+            }
+        }
+
+        writeLiteral(out, data, literalStart, data.length);
+        out.writeByte(DeltaFormat.OP_END);
+        out.flush();
+    }
+
+    private static void writeLiteral(DataOutputStream out, byte[] data, int from, int to) throws IOException {
+        for (int offset = from; offset < to; offset += DeltaFormat.MAX_LITERAL) {
+            int length = Math.min(DeltaFormat.MAX_LITERAL, to - offset);
+            out.writeByte(DeltaFormat.OP_LITERAL);
+            out.writeInt(length);
+            out.write(data, offset, length);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, n);
+        }
+        return buffer.toByteArray();
+    }
+}
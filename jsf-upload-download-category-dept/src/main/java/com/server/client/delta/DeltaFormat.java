@@ -0,0 +1,45 @@
+package com.server.client.delta;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Wire format of a delta upload (big-endian):
+//   "RDLT" | int blockSize | 32 bytes SHA-256 of the base | 32 bytes SHA-256 of the rebuilt file
+//   then any number of ops, ended by END:
+//     COPY    'C' | int blockIndex           block of the stored base version
+//     LITERAL 'L' | int length | bytes       new bytes the server does not have
+//     END     'E'
+final class DeltaFormat {
+
+    static final int MAGIC = 0x52444C54; // "RDLT"
+
+    static final byte OP_COPY = 'C';
+    static final byte OP_LITERAL = 'L';
+    static final byte OP_END = 'E';
+
+    static final int DIGEST_LENGTH = 32; // SHA-256
+
+    // Upper bound for a single literal op, so the receiver can bound its buffer
+    static final int MAX_LITERAL = 64 * 1024;
+
+    private DeltaFormat() {
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Lowercase hex, the same form DigestStage stores in FileItem.checksum
+    static String hex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(digest[i] & 0xf, 16);
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,13 @@
+package com.server.client.delta;
+
+import java.io.IOException;
+
+// The client sent a malformed or invalid delta (as opposed to an I/O failure on the server)
+public class DeltaFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeltaFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.server.client.delta;
+
+// rsync's weak checksum: two 16-bit running sums over a fixed-size window that can be slid
+// forward one byte in O(1), which is what makes searching every offset of a file affordable.
+final class RollingChecksum {
+
+    private int a;
+    private int b;
+    private int length;
+
+    void reset(byte[] data, int offset, int length) {
+        a = 0;
+        b = 0;
+        this.length = length;
+        for (int i = 0; i < length; i++) {
+            int x = data[offset + i] & 0xFF;
+            a += x;
+            b += (length - i) * x;
+        }
+    }
+
+    // Slide the window one byte: drop `out` from the front, append `in` at the back
+    void roll(byte out, byte in) {
+        int o = out & 0xFF;
+        a += (in & 0xFF) - o;
+        b += a - length * o;
+    }
+
+    int value() {
+        return (a & 0xFFFF) | (b << 16);
+    }
+
+    static int of(byte[] data, int offset, int length) {
+        RollingChecksum checksum = new RollingChecksum();
+        checksum.reset(data, offset, length);
+        return checksum.value();
+    }
+}
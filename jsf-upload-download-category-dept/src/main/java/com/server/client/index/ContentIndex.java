@@ -0,0 +1,600 @@
+package com.server.client.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.server.client.storage.UploadStore;
+
+// Application-wide inverted index over the text content of stored files, so "which config
+// mentions db01.example.com" is a term lookup instead of downloading files one by one.
+//
+// Every published version of a file becomes a new document with the next doc id; the doc table
+// (docs.log) maps the latest doc id of each file name, and postings of superseded or removed
+// documents are simply ignored until a merge drops them. New documents collect in an in-memory
+// buffer that is written out as an immutable sorted segment (see Segment) every FLUSH_DOCS
+// documents or on flush(). A query is a binary search per term in each segment plus the buffer.
+//
+// Merges run on the executor given to setMergeExecutor(), never on the thread adding a document,
+// and only hold the write lock to swap the result in. They are tiered: segments are grouped by
+// size in steps of MERGE_FACTOR and MERGE_FACTOR segments of the same tier are merged into one
+// of the next tier, so each posting is rewritten about log(index size) times in total.
+//
+// Segments are forced to disk before the doc table records for them are appended (and those are
+// forced too), so after a crash of the process or the machine a document is either fully
+// searchable or not known at all (and the previous version stays live) - never live without
+// postings.
+public final class ContentIndex {
+
+    private static final int FLUSH_DOCS = 32;
+    private static final long FLUSH_POSTINGS = 500000;
+    private static final int MERGE_FACTOR = 4;
+    private static final long MIN_TIER_BYTES = 64 * 1024;
+    private static final int MIN_DOC_LOG_COMPACT = 1024;
+
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String DOC_TABLE = "docs.log";
+    private static final byte OP_ADD = 'A';
+    private static final byte OP_REMOVE = 'R';
+
+    private static ContentIndex instance;
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Segment> segments = new ArrayList<>();
+    // Live documents only: file name -> latest doc id, and back
+    private final Map<String, Integer> liveDocs = new HashMap<>();
+    private final Map<Integer, String> docNames = new HashMap<>();
+    // Postings of documents added since the last flush
+    private final Map<String, DocIdList> buffer = new HashMap<>();
+    private int bufferedDocs;
+    private long bufferedPostings;
+    // Doc table records for the buffered changes, written by the next flush
+    private final List<DocRecord> pendingRecords = new ArrayList<>();
+
+    private int nextDocId;
+    private long nextGeneration;
+    private FileChannel docLogChannel;
+    private DataOutputStream docLog;
+    private int docLogRecords;
+    private boolean closed;
+
+    private volatile Executor mergeExecutor;
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    // Bumped on every change to the searchable content; part of the search response ETag
+    private volatile long version;
+
+    private ContentIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    public static synchronized ContentIndex getInstance() {
+        if (instance == null) {
+            instance = new ContentIndex(UploadStore.indexDirectory());
+            instance.load();
+        }
+        return instance;
+    }
+
+    // Replaces whatever was indexed for this file name
+    public void add(String fileName, Collection<String> terms) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int docId = nextDocId++;
+            pendingRecords.add(new DocRecord(OP_ADD, docId, fileName));
+            setLive(fileName, docId);
+
+            for (String term : terms) {
+                buffer.computeIfAbsent(term, k -> new DocIdList()).add(docId);
+            }
+            bufferedDocs++;
+            bufferedPostings += terms.size();
+            version++;
+
+            if (bufferedDocs >= FLUSH_DOCS || bufferedPostings >= FLUSH_POSTINGS) {
+                flushBuffer();
+                requestMerge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String fileName) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Integer docId = liveDocs.remove(fileName);
+            if (docId != null) {
+                docNames.remove(docId);
+                pendingRecords.add(new DocRecord(OP_REMOVE, -1, fileName));
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Names of stored files containing every term of the query, most recently indexed first.
+    // The query is tokenized like the content, so "db01.example.com", "example" or
+    // "max_connections" all work.
+    public List<String> search(String query) {
+        List<String> names = new ArrayList<>();
+        if (query == null) return names;
+
+        lock.readLock().lock();
+        try {
+            int[] hits = null;
+            for (String term : Tokenizer.tokenize(query)) {
+                int[] postings = postingsFor(term);
+                hits = (hits == null) ? postings : PostingList.intersect(hits, postings);
+                if (hits.length == 0) break;
+            }
+            if (hits == null) return names;
+
+            for (int i = hits.length - 1; i >= 0; i--) {
+                String name = docNames.get(hits[i]);
+                if (name != null) names.add(name);
+            }
+            return names;
+        } catch (IOException e) {
+            System.err.println("Content index search failed: " + e.getMessage());
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only increases while the application runs; restarts with it
+    public long getVersion() {
+        return version;
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return liveDocs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Makes buffered documents durable; called periodically by the maintenance scheduler
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            flushBuffer();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        requestMerge();
+    }
+
+    // Background thread for merges; until one is set segments are never merged
+    public void setMergeExecutor(Executor executor) {
+        this.mergeExecutor = executor;
+        requestMerge();
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            System.err.println("Could not flush content index: " + e.getMessage());
+        } finally {
+            closed = true;
+            closeDocLog();
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) return;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                long generation = generationOf(file);
+                if (generation < 0) continue;
+                try {
+                    Segment segment = Segment.read(file, generation);
+                    segments.add(segment);
+                    nextDocId = Math.max(nextDocId, segment.getMaxDocId() + 1);
+                } catch (IOException e) {
+                    System.err.println("Skipping unreadable index segment " + file + ": " + e.getMessage());
+                }
+                nextGeneration = Math.max(nextGeneration, generation + 1);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list content index segments: " + e.getMessage());
+        }
+        segments.sort((a, b) -> Long.compare(a.getGeneration(), b.getGeneration()));
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(DOC_TABLE))))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                if (op == OP_ADD) {
+                    int docId = in.readInt();
+                    setLive(in.readUTF(), docId);
+                    nextDocId = Math.max(nextDocId, docId + 1);
+                } else if (op == OP_REMOVE) {
+                    Integer docId = liveDocs.remove(in.readUTF());
+                    if (docId != null) docNames.remove(docId);
+                } else {
+                    throw new IOException("Corrupt content index doc table");
+                }
+                docLogRecords++;
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing indexed yet
+        } catch (EOFException e) {
+            // Last record was cut short by a crash; everything before it is intact
+        } catch (IOException e) {
+            System.err.println("Could not read content index doc table: " + e.getMessage());
+        }
+        System.out.println("Content index loaded: " + liveDocs.size() + " documents in " + segments.size() + " segments");
+    }
+
+    private void setLive(String fileName, int docId) {
+        Integer previous = liveDocs.put(fileName, docId);
+        if (previous != null) docNames.remove(previous);
+        docNames.put(docId, fileName);
+    }
+
+    // Union of the term's postings across segments and buffer, ascending
+    private int[] postingsFor(String term) throws IOException {
+        List<int[]> parts = new ArrayList<>();
+        int total = 0;
+        for (Segment segment : segments) {
+            int[] postings = segment.postings(term);
+            if (postings.length > 0) {
+                parts.add(postings);
+                total += postings.length;
+            }
+        }
+        DocIdList buffered = buffer.get(term);
+        if (buffered != null) {
+            parts.add(buffered.toArray());
+            total += buffered.size;
+        }
+        if (parts.size() == 1) return parts.get(0);
+
+        int[] all = new int[total];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, all, position, part.length);
+            position += part.length;
+        }
+        return sortedUnique(all);
+    }
+
+    // Segments can share doc ids after a crash between writing a merged segment and deleting
+    // its inputs
+    private static int[] sortedUnique(int[] ids) {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (n == 0 || ids[i] != ids[n - 1]) ids[n++] = ids[i];
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (bufferedDocs > 0) {
+            Segment segment;
+            try (Segment.Writer writer = newSegment(nextDocId - 1)) {
+                for (Map.Entry<String, DocIdList> entry : new TreeMap<>(buffer).entrySet()) {
+                    writer.add(entry.getKey(), entry.getValue().toArray());
+                }
+                segment = writer.finish();
+            }
+            segments.add(segment);
+            buffer.clear();
+            bufferedDocs = 0;
+            bufferedPostings = 0;
+        }
+        if (pendingRecords.isEmpty()) return;
+
+        // Only now that the postings are durable may the doc table point at them
+        for (DocRecord record : pendingRecords) {
+            appendToDocLog(record.op, record.docId, record.fileName);
+        }
+        docLog.flush();
+        docLogChannel.force(false);
+        pendingRecords.clear();
+    }
+
+    private Segment.Writer newSegment(int maxDocId) throws IOException {
+        Files.createDirectories(directory);
+        long generation = nextGeneration++;
+        return new Segment.Writer(directory.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX), generation,
+            maxDocId);
+    }
+
+    private void requestMerge() {
+        Executor executor = mergeExecutor;
+        if (executor == null || !mergeScheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::runMerges);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            mergeScheduled.set(false);
+        }
+    }
+
+    // Merges until no tier is full, then compacts the doc table if it is mostly dead records
+    private synchronized void runMerges() {
+        mergeScheduled.set(false);
+        try {
+            while (mergeOnce()) {
+                // Next tier may have filled up
+            }
+            compactDocLog();
+        } catch (IOException e) {
+            System.err.println("Content index merge failed: " + e.getMessage());
+        }
+    }
+
+    private boolean mergeOnce() throws IOException {
+        List<Segment> inputs;
+        int[] liveIds;
+        Segment.Writer writer;
+        lock.writeLock().lock();
+        try {
+            inputs = closed ? null : pickMerge();
+            if (inputs == null) return false;
+            liveIds = new int[docNames.size()];
+            int n = 0;
+            for (int docId : docNames.keySet()) liveIds[n++] = docId;
+            Arrays.sort(liveIds);
+            int maxDocId = 0;
+            for (Segment segment : inputs) maxDocId = Math.max(maxDocId, segment.getMaxDocId());
+            writer = newSegment(maxDocId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Segments are immutable, so the merge itself runs without the lock; documents removed
+        // meanwhile are only dropped by a later merge
+        Segment merged;
+        long terms = 0;
+        try {
+            PriorityQueue<TermCursor> cursors = new PriorityQueue<>();
+            for (Segment segment : inputs) {
+                if (segment.termCount() > 0) cursors.add(new TermCursor(segment));
+            }
+            DocIdList live = new DocIdList();
+            while (!cursors.isEmpty()) {
+                String term = cursors.peek().term();
+                live.clear();
+                while (!cursors.isEmpty() && cursors.peek().term().equals(term)) {
+                    TermCursor cursor = cursors.poll();
+                    for (int docId : cursor.postings()) {
+                        if (Arrays.binarySearch(liveIds, docId) >= 0) live.addUnordered(docId);
+                    }
+                    if (cursor.next()) cursors.add(cursor);
+                }
+                if (live.size > 0) {
+                    writer.add(term, sortedUnique(live.toArray()));
+                    terms++;
+                }
+            }
+            merged = writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                merged.close();
+                Files.deleteIfExists(merged.getFile());
+                return false;
+            }
+            segments.removeAll(inputs);
+            segments.add(merged);
+            for (Segment segment : inputs) {
+                segment.close();
+                try {
+                    Files.deleteIfExists(segment.getFile());
+                } catch (IOException e) {
+                    // Its postings are also in the merged segment, so a leftover is harmless
+                    System.err.println("Could not delete merged index segment " + segment.getFile() + ": "
+                        + e.getMessage());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Content index merged " + inputs.size() + " segments into " + merged.getFile().getFileName()
+            + ": " + terms + " terms, " + merged.getSize() + " bytes");
+        return true;
+    }
+
+    // MERGE_FACTOR oldest segments of the smallest tier that has that many, or null
+    private List<Segment> pickMerge() {
+        Map<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (Segment segment : segments) {
+            tiers.computeIfAbsent(tierOf(segment.getSize()), k -> new ArrayList<>()).add(segment);
+        }
+        for (List<Segment> tier : tiers.values()) {
+            if (tier.size() >= MERGE_FACTOR) {
+                tier.sort((a, b) -> Long.compare(a.getGeneration(), b.getGeneration()));
+                return new ArrayList<>(tier.subList(0, MERGE_FACTOR));
+            }
+        }
+        return null;
+    }
+
+    private static int tierOf(long size) {
+        int tier = 0;
+        for (long bound = MIN_TIER_BYTES * MERGE_FACTOR; size >= bound && bound > 0; bound *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private void compactDocLog() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed || docLogRecords < MIN_DOC_LOG_COMPACT || docLogRecords < 2 * liveDocs.size()) return;
+            // Buffered documents are live in memory but must not reach the doc table before their postings
+            flushBuffer();
+            rewriteDocLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendToDocLog(byte op, int docId, String fileName) throws IOException {
+        if (docLog == null) {
+            Files.createDirectories(directory);
+            docLogChannel = FileChannel.open(directory.resolve(DOC_TABLE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            docLog = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(docLogChannel)));
+        }
+        docLog.write(op);
+        if (op == OP_ADD) docLog.writeInt(docId);
+        docLog.writeUTF(fileName);
+        docLogRecords++;
+    }
+
+    private static final class DocRecord {
+        final byte op;
+        final int docId;
+        final String fileName;
+
+        DocRecord(byte op, int docId, String fileName) {
+            this.op = op;
+            this.docId = docId;
+            this.fileName = fileName;
+        }
+    }
+
+    private void rewriteDocLog() throws IOException {
+        closeDocLog();
+        Path docTable = directory.resolve(DOC_TABLE);
+        Path tempFile = directory.resolve("." + DOC_TABLE + ".part");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (Map.Entry<Integer, String> entry : new TreeMap<>(docNames).entrySet()) {
+                out.write(OP_ADD);
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(tempFile, docTable, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, docTable, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Segment.syncDirectory(directory);
+        docLogRecords = docNames.size();
+    }
+
+    private void closeDocLog() {
+        if (docLog == null) return;
+        try {
+            docLog.close();
+        } catch (IOException e) {
+            System.err.println("Could not close content index doc table: " + e.getMessage());
+        }
+        docLog = null;
+        docLogChannel = null;
+    }
+
+    // -1 for names that are not ours
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Position in one input segment's term dictionary during a merge, ordered by current term
+    private static final class TermCursor implements Comparable<TermCursor> {
+        private final Segment segment;
+        private int index;
+
+        TermCursor(Segment segment) {
+            this.segment = segment;
+        }
+
+        String term() {
+            return segment.term(index);
+        }
+
+        int[] postings() throws IOException {
+            return segment.postingsAt(index);
+        }
+
+        boolean next() {
+            return ++index < segment.termCount();
+        }
+
+        @Override
+        public int compareTo(TermCursor other) {
+            return term().compareTo(other.term());
+        }
+    }
+
+    // Growable ascending int list for postings under construction
+    private static final class DocIdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int docId) {
+            if (size > 0 && ids[size - 1] == docId) return;
+            addUnordered(docId);
+        }
+
+        // Caller sorts and dedupes the result
+        void addUnordered(int docId) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = docId;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.server.client.index;
+
+import com.server.client.catalog.CatalogPage;
+import com.server.client.catalog.FileCatalog;
+
+// Joins content index hits with a catalog listing, shared by the download panel and the JSON API
+public final class ContentSearch {
+
+    private ContentSearch() {
+    }
+
+    // Paged content search over the catalog, most recently indexed first; only the page is
+    // materialised. The catalog stays the source of truth for what is listed, so index hits it
+    // does not know are dropped.
+    public static CatalogPage page(String query, String categoryFilter, String deptFilter, int offset, int limit) {
+        return FileCatalog.getInstance().filterNamed(ContentIndex.getInstance().search(query),
+            categoryFilter, deptFilter, offset, limit);
+    }
+}
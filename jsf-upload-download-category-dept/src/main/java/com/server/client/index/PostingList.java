@@ -0,0 +1,66 @@
+package com.server.client.index;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// Ascending doc ids stored as varint-encoded gaps: consecutive documents cost one byte each
+// instead of four. Also used for the other varints in the segment format.
+final class PostingList {
+
+    private PostingList() {
+    }
+
+    static byte[] encode(int[] docIds, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count + 4);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarInt(out, docIds[i] - previous);
+            previous = docIds[i];
+        }
+        return out.toByteArray();
+    }
+
+    static int[] decode(byte[] data, int offset, int length, int count) {
+        int[] docIds = new int[count];
+        int[] cursor = {offset};
+        int end = offset + length;
+        int previous = 0;
+        for (int i = 0; i < count && cursor[0] < end; i++) {
+            previous += readVarInt(data, cursor);
+            docIds[i] = previous;
+        }
+        return docIds;
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // cursor[0] is advanced past the value
+    static int readVarInt(byte[] data, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+
+    // Both inputs ascending; result ascending
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { result[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
@@ -0,0 +1,280 @@
+package com.server.client.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// One immutable on-disk slice of the index. File layout:
+//   int magic "RIDX", int formatVersion, int maxDocId
+//   postings of every term (PostingList encoding), back to back
+//   termCount x { UTF term, int docCount, long postingsOffset, int postingsLength }
+//   int termCount, long dictionaryOffset
+// Only the term dictionary is held in memory; a lookup is a binary search over it followed by
+// one positional read of the term's postings, so the heap cost of a segment does not grow with
+// the number of documents it covers.
+final class Segment implements Closeable {
+
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_LENGTH = 12;
+    private static final int TRAILER_LENGTH = 12;
+
+    private final Path file;
+    private final long generation;
+    private final int maxDocId;
+    private final long size;
+    private final String[] terms;
+    private final int[] docCounts;
+    private final long[] offsets;
+    private final int[] lengths;
+    private FileChannel channel;
+    private boolean closed;
+
+    private Segment(Path file, long generation, int maxDocId, long size, String[] terms, int[] docCounts,
+            long[] offsets, int[] lengths) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.maxDocId = maxDocId;
+        this.size = size;
+        this.terms = terms;
+        this.docCounts = docCounts;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    static Segment read(Path file, long generation) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH) throw new IOException("Not an index segment: " + file);
+
+            ByteBuffer header = readFully(in, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC) throw new IOException("Not an index segment: " + file);
+            int formatVersion = header.getInt();
+            if (formatVersion != FORMAT_VERSION) throw new IOException("Unsupported segment format " + formatVersion);
+            int maxDocId = header.getInt();
+
+            ByteBuffer trailer = readFully(in, size - TRAILER_LENGTH, TRAILER_LENGTH);
+            int termCount = trailer.getInt();
+            long dictionaryOffset = trailer.getLong();
+            if (termCount < 0 || dictionaryOffset < HEADER_LENGTH || dictionaryOffset > size - TRAILER_LENGTH) {
+                throw new IOException("Corrupt index segment: " + file);
+            }
+
+            String[] terms = new String[termCount];
+            int[] docCounts = new int[termCount];
+            long[] offsets = new long[termCount];
+            int[] lengths = new int[termCount];
+            // Not closed: that would close the channel, which try-with-resources already does
+            DataInputStream dictionary = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(in.position(dictionaryOffset))));
+            for (int t = 0; t < termCount; t++) {
+                terms[t] = dictionary.readUTF();
+                docCounts[t] = dictionary.readInt();
+                offsets[t] = dictionary.readLong();
+                lengths[t] = dictionary.readInt();
+                if (offsets[t] < HEADER_LENGTH || offsets[t] + lengths[t] > dictionaryOffset) {
+                    throw new IOException("Corrupt index segment: " + file);
+                }
+            }
+            return new Segment(file, generation, maxDocId, size, terms, docCounts, offsets, lengths);
+        }
+    }
+
+    // Empty array when the term is not in this segment
+    int[] postings(String term) throws IOException {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) return new int[0];
+        return postingsAt(t);
+    }
+
+    int termCount() {
+        return terms.length;
+    }
+
+    String term(int index) {
+        return terms[index];
+    }
+
+    int[] postingsAt(int index) throws IOException {
+        ByteBuffer data;
+        try {
+            data = readFully(channel(), offsets[index], lengths[index]);
+        } catch (ClosedChannelException e) {
+            // An interrupted reader closes the channel for everyone; reopen once and retry
+            data = readFully(reopen(), offsets[index], lengths[index]);
+        }
+        return PostingList.decode(data.array(), 0, lengths[index], docCounts[index]);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    int getMaxDocId() {
+        return maxDocId;
+    }
+
+    // Bytes on disk; used to group segments of similar size for merging
+    long getSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close index segment " + file + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized FileChannel channel() throws ClosedChannelException {
+        if (closed) throw new ClosedChannelException();
+        return channel;
+    }
+
+    private synchronized FileChannel reopen() throws IOException {
+        if (closed) throw new ClosedChannelException();
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    private static ByteBuffer readFully(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) throw new EOFException("Truncated index segment");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Best effort: makes a rename in the directory durable where the platform allows opening a
+    // directory (not on Windows, where NTFS journals the rename itself)
+    static void syncDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported here
+        }
+    }
+
+    // Streams a new segment term by term, so a merge never holds more than one term's postings.
+    // The file is written under a temp name, forced to disk and only then renamed, so after a
+    // crash (of the process or the machine) it is either complete or absent.
+    static final class Writer implements Closeable {
+
+        private final Path file;
+        private final Path tempFile;
+        private final long generation;
+        private final int maxDocId;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final List<String> terms = new ArrayList<>();
+        private final List<long[]> entries = new ArrayList<>();
+        private long position;
+        private boolean finished;
+
+        // maxDocId is the highest id allocated so far, recorded so ids are never reused even if
+        // the doc table did not get to record them
+        Writer(Path file, long generation, int maxDocId) throws IOException {
+            this.file = file;
+            this.tempFile = file.resolveSibling("." + file.getFileName() + ".part");
+            this.generation = generation;
+            this.maxDocId = maxDocId;
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(maxDocId);
+            position = HEADER_LENGTH;
+        }
+
+        // Terms must be added in ascending order; docIds ascending and non-empty
+        void add(String term, int[] docIds) throws IOException {
+            byte[] encoded = PostingList.encode(docIds, docIds.length);
+            out.write(encoded);
+            terms.add(term);
+            entries.add(new long[] {docIds.length, position, encoded.length});
+            position += encoded.length;
+        }
+
+        Segment finish() throws IOException {
+            long dictionaryOffset = position;
+            for (int t = 0; t < terms.size(); t++) {
+                long[] entry = entries.get(t);
+                out.writeUTF(terms.get(t));
+                out.writeInt((int) entry[0]);
+                out.writeLong(entry[1]);
+                out.writeInt((int) entry[2]);
+            }
+            out.writeInt(terms.size());
+            out.writeLong(dictionaryOffset);
+            out.flush();
+            channel.force(true);
+            long size = channel.size();
+            out.close();
+
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(file.getParent());
+            finished = true;
+
+            int termCount = terms.size();
+            int[] docCounts = new int[termCount];
+            long[] offsets = new long[termCount];
+            int[] lengths = new int[termCount];
+            for (int t = 0; t < termCount; t++) {
+                long[] entry = entries.get(t);
+                docCounts[t] = (int) entry[0];
+                offsets[t] = entry[1];
+                lengths[t] = (int) entry[2];
+            }
+            return new Segment(file, generation, maxDocId, size, terms.toArray(new String[0]), docCounts, offsets,
+                lengths);
+        }
+
+        // Abandons an unfinished segment
+        @Override
+        public void close() {
+            if (finished) return;
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Discarded below anyway
+            }
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                System.err.println("Could not delete index temp file " + tempFile + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.server.client.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+// Splits text into index terms as bytes stream past, so tokens may span chunk boundaries.
+// A token is a run of letters, digits, '.', '-', '_' and any non-ASCII bytes (UTF-8 text),
+// lower-cased. Compound tokens such as "db01.example.com" or "max_connections" are indexed both
+// whole and as their '.', '-', '_' separated parts, so hostnames and keys match either way.
+public final class Tokenizer {
+
+    static final int MIN_TERM_LENGTH = 2;
+    static final int MAX_TERM_LENGTH = 64;
+
+    private final int maxTerms;
+    private final Set<String> terms = new HashSet<>();
+    private final byte[] token = new byte[MAX_TERM_LENGTH];
+    private int tokenLength;
+    private boolean tokenTooLong;
+
+    public Tokenizer(int maxTerms) {
+        this.maxTerms = maxTerms;
+    }
+
+    public void feed(byte[] buffer, int offset, int length) {
+        if (isFull()) return;
+        for (int i = offset; i < offset + length; i++) {
+            int b = buffer[i] & 0xFF;
+            if (isTokenByte(b)) {
+                if (tokenLength < MAX_TERM_LENGTH) {
+                    token[tokenLength++] = (byte) (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b);
+                } else {
+                    tokenTooLong = true;
+                }
+            } else {
+                endToken();
+            }
+        }
+    }
+
+    public Set<String> finish() {
+        endToken();
+        return terms;
+    }
+
+    private boolean isFull() {
+        return terms.size() >= maxTerms;
+    }
+
+    static Set<String> tokenize(String text) {
+        Tokenizer tokenizer = new Tokenizer(Integer.MAX_VALUE);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        tokenizer.feed(bytes, 0, bytes.length);
+        return tokenizer.finish();
+    }
+
+    private static boolean isTokenByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+            || b == '.' || b == '-' || b == '_' || b >= 0x80;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == '.' || b == '-' || b == '_';
+    }
+
+    private void endToken() {
+        if (tokenLength > 0 && !tokenTooLong && !isFull()) {
+            // Whole token, without leading/trailing punctuation
+            int start = 0;
+            int end = tokenLength;
+            while (start < end && isSeparator(token[start])) start++;
+            while (end > start && isSeparator(token[end - 1])) end--;
+            add(start, end);
+
+            // Its parts, if it is a compound
+            int partStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || isSeparator(token[i])) {
+                    if (partStart > start || i < end) {
+                        add(partStart, i);
+                    }
+                    partStart = i + 1;
+                }
+            }
+        }
+        tokenLength = 0;
+        tokenTooLong = false;
+    }
+
+    private void add(int start, int end) {
+        if (end - start >= MIN_TERM_LENGTH && terms.size() < maxTerms) {
+            terms.add(new String(token, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.server.client.ingest;
+
+import com.server.client.model.FileItem;
+
+// Fills FileItem.size from the bytes actually received rather than the client-declared length
+public class ByteCountStage implements IngestStage {
+
+    private long count;
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        count += length;
+    }
+
+    @Override
+    public void complete(FileItem item) {
+        item.setSize(count);
+    }
+}
@@ -0,0 +1,38 @@
+package com.server.client.ingest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.server.client.model.FileItem;
+
+// Content hash of the upload, stored as lowercase hex in FileItem.checksum
+public class DigestStage implements IngestStage {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    public DigestStage(String algorithm) {
+        try {
+            this.digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        digest.update(buffer, offset, length);
+    }
+
+    @Override
+    public void complete(FileItem item) {
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        item.setChecksum(new String(hex));
+    }
+}
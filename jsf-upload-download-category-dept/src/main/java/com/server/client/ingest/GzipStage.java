@@ -0,0 +1,70 @@
+package com.server.client.ingest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import com.server.client.model.FileItem;
+import com.server.client.storage.UploadStore;
+
+// Writes a gzip copy of the upload alongside the original as the bytes stream past. The copy is
+// written under a temp name and only renamed into place when the upload itself is published.
+public class GzipStage implements IngestStage {
+
+    private final Path target;
+    private final Path tempFile;
+    private final OutputStream out;
+
+    public GzipStage(Path target) throws IOException {
+        this.target = target;
+        Files.createDirectories(target.getParent());
+        // Same ".<name>.<uuid>.part" convention as uploads so the janitor reclaims abandoned copies
+        this.tempFile = target.resolveSibling(UploadStore.TEMP_PREFIX + target.getFileName()
+            + "." + UUID.randomUUID() + UploadStore.TEMP_SUFFIX);
+        this.out = new GZIPOutputStream(Files.newOutputStream(tempFile), 8192);
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+    }
+
+    @Override
+    public void complete(FileItem item) throws IOException {
+        out.close();
+    }
+
+    @Override
+    public void publish() throws IOException {
+        try {
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The previous version's copy no longer matches the stored file
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Already failing; the temp file is deleted below regardless
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("Could not delete compressed temp file " + tempFile + ": " + e.getMessage());
+        }
+    }
+}
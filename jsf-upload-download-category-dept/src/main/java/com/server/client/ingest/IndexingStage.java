@@ -0,0 +1,60 @@
+package com.server.client.ingest;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.server.client.index.ContentIndex;
+import com.server.client.index.Tokenizer;
+import com.server.client.model.FileItem;
+
+// Collects the terms of text uploads while they stream past and hands them to the content index
+// on publish, so a file is searchable as soon as its new version is current.
+// Must run after MagicTypeStage, whose detected type decides whether the content is text.
+// Binary containers (PDF, Word, OOXML) are not indexed; their text needs a format-specific
+// extractor. A version that is not indexable still replaces the previous version's entry.
+public class IndexingStage implements IngestStage {
+
+    // Bounds memory for huge generated files; later unique terms are dropped
+    private static final int MAX_TERMS_PER_FILE = 200000;
+
+    private final Tokenizer collector = new Tokenizer(MAX_TERMS_PER_FILE);
+    private boolean binary;
+    private String fileName;
+    private Set<String> terms;
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        if (binary) return;
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] == 0) {
+                binary = true;
+                return;
+            }
+        }
+        collector.feed(buffer, offset, length);
+    }
+
+    @Override
+    public void complete(FileItem item) {
+        fileName = item.getName();
+        terms = (!binary && isText(item.getType())) ? collector.finish() : null;
+    }
+
+    @Override
+    public void publish() {
+        // The index is secondary: failing to update it must not fail an upload that is already in place
+        try {
+            if (terms != null) {
+                ContentIndex.getInstance().add(fileName, terms);
+            } else {
+                ContentIndex.getInstance().remove(fileName);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not index " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isText(String type) {
+        return "text/plain".equals(type) || "application/xml".equals(type) || "application/rtf".equals(type);
+    }
+}
@@ -0,0 +1,101 @@
+package com.server.client.ingest;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.server.client.model.FileItem;
+import com.server.client.storage.UploadStore;
+
+// Reads an upload once and fans each chunk out to the disk writer and every registered stage,
+// so hashing, type sniffing, size accounting etc. never need a second pass over the file.
+public class IngestPipeline {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final List<IngestStage> stages = new ArrayList<>();
+
+    // The standard stage set for a stored upload
+    public static IngestPipeline forUpload(String fileName, boolean compress) throws IOException {
+        IngestPipeline pipeline = new IngestPipeline()
+            .addStage(new ByteCountStage())
+            .addStage(new MagicTypeStage())
+            .addStage(new DigestStage("SHA-256"))
+            .addStage(new IndexingStage());
+        if (compress) {
+            pipeline.addStage(new GzipStage(UploadStore.compressedPath(fileName)));
+        }
+        return pipeline;
+    }
+
+    public IngestPipeline addStage(IngestStage stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    public FileItem run(InputStream in, OutputStream out, FileItem item) throws IOException {
+        try {
+            OutputStream tee = stream(out);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                tee.write(buffer, 0, bytesRead);
+            }
+            tee.flush();
+
+            finish(item);
+            return item;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    // For producers that push bytes rather than supply an InputStream (e.g. delta reconstruction):
+    // everything written to the returned stream goes to out and to every stage. Call finish()
+    // once the last byte has been written, or abort() on failure.
+    public OutputStream stream(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                out.write(buffer, offset, length);
+                for (IngestStage stage : stages) {
+                    stage.update(buffer, offset, length);
+                }
+            }
+        };
+    }
+
+    public void finish(FileItem item) throws IOException {
+        for (IngestStage stage : stages) {
+            stage.complete(item);
+        }
+    }
+
+    // Side outputs only: the upload and its catalog entry are already published, so a stage
+    // that fails here is logged and cleaned up rather than failing the upload
+    public void publish() {
+        for (IngestStage stage : stages) {
+            try {
+                stage.publish();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not publish " + stage.getClass().getSimpleName() + " output: " + e.getMessage());
+                stage.abort();
+            }
+        }
+    }
+
+    public void abort() {
+        for (IngestStage stage : stages) {
+            stage.abort();
+        }
+    }
+}
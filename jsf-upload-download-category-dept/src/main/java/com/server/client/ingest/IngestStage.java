@@ -0,0 +1,25 @@
+package com.server.client.ingest;
+
+import java.io.IOException;
+
+import com.server.client.model.FileItem;
+
+// One step of the upload ingest pipeline. Each stage sees every chunk of the upload exactly once,
+// in order, while the bytes are being written to disk, and records its result on the FileItem.
+public interface IngestStage {
+
+    void update(byte[] buffer, int offset, int length) throws IOException;
+
+    // Called once after the last chunk, only if the whole upload was read successfully
+    void complete(FileItem item) throws IOException;
+
+    // Called after the upload has been renamed into place and its catalog entry replaced, while
+    // the per-name publish lock is still held; make any side outputs visible here. A failure is
+    // logged and followed by abort(); it does not fail the already published upload.
+    default void publish() throws IOException {
+    }
+
+    // Called when the upload fails at any point before publish; release anything the stage created
+    default void abort() {
+    }
+}
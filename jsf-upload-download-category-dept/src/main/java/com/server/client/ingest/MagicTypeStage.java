@@ -0,0 +1,77 @@
+package com.server.client.ingest;
+
+import com.server.client.model.FileItem;
+
+// Fills FileItem.type by sniffing the leading bytes of the upload instead of trusting the
+// browser-supplied content type. Falls back to a text/binary heuristic for unrecognised content.
+public class MagicTypeStage implements IngestStage {
+
+    private static final int SNIFF_LENGTH = 512;
+
+    private final byte[] head = new byte[SNIFF_LENGTH];
+    private int headLength;
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        if (headLength < SNIFF_LENGTH) {
+            int n = Math.min(length, SNIFF_LENGTH - headLength);
+            System.arraycopy(buffer, offset, head, headLength, n);
+            headLength += n;
+        }
+    }
+
+    @Override
+    public void complete(FileItem item) {
+        item.setType(detect(item.getExtension()));
+    }
+
+    private String detect(String extension) {
+        if (startsWith(0x25, 0x50, 0x44, 0x46)) return "application/pdf";                 // %PDF
+        if (startsWith(0x89, 0x50, 0x4E, 0x47)) return "image/png";
+        if (startsWith(0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(0x47, 0x49, 0x46, 0x38)) return "image/gif";                       // GIF8
+        if (startsWith(0x42, 0x4D)) return "image/bmp";                                   // BM
+        if (startsWith(0x1F, 0x8B)) return "application/gzip";
+        if (startsWith(0x52, 0x61, 0x72, 0x21)) return "application/vnd.rar";             // Rar!
+        if (startsWith(0x49, 0x44, 0x33)) return "audio/mpeg";                            // ID3
+        if (startsWith(0x7B, 0x5C, 0x72, 0x74, 0x66)) return "application/rtf";           // {\rtf
+        if (startsWith(0xD0, 0xCF, 0x11, 0xE0)) {
+            // OLE2 compound file - legacy Office; only the extension tells which application
+            switch (extension) {
+                case "xls": return "application/vnd.ms-excel";
+                case "ppt": return "application/vnd.ms-powerpoint";
+                default: return "application/msword";
+            }
+        }
+        if (startsWith(0x50, 0x4B, 0x03, 0x04)) {
+            // ZIP container - OOXML documents are zips too
+            switch (extension) {
+                case "docx": return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+                case "xlsx": return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+                case "pptx": return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+                default: return "application/zip";
+            }
+        }
+        if (startsWith(0x3C, 0x3F, 0x78, 0x6D, 0x6C)) return "application/xml";          // <?xml
+        return looksLikeText() ? "text/plain" : "application/octet-stream";
+    }
+
+    private boolean startsWith(int... magic) {
+        if (headLength < magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xFF) != magic[i]) return false;
+        }
+        return true;
+    }
+
+    // NUL bytes or a high share of control characters mean binary
+    private boolean looksLikeText() {
+        int control = 0;
+        for (int i = 0; i < headLength; i++) {
+            int b = head[i] & 0xFF;
+            if (b == 0) return false;
+            if (b < 0x09 || (b > 0x0D && b < 0x20)) control++;
+        }
+        return control * 10 <= headLength;
+    }
+}
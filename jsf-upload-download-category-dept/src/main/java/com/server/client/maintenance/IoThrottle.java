@@ -0,0 +1,38 @@
+package com.server.client.maintenance;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket limiting the janitor's filesystem operations (stat, delete) per second so a sweep
+// over a large directory trickles along instead of competing with foreground transfers.
+final class IoThrottle {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    IoThrottle(int opsPerSecond) {
+        int rate = Math.max(1, opsPerSecond);
+        this.permitsPerNano = rate / (double) TimeUnit.SECONDS.toNanos(1);
+        // Allow at most one second's worth of burst
+        this.maxPermits = rate;
+        this.availablePermits = 0;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    void acquire() throws InterruptedException {
+        refill();
+        while (availablePermits < 1) {
+            long waitNanos = (long) Math.ceil((1 - availablePermits) / permitsPerNano);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            refill();
+        }
+        availablePermits -= 1;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availablePermits = Math.min(maxPermits, availablePermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,84 @@
+package com.server.client.maintenance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import com.server.client.catalog.FileCatalog;
+import com.server.client.index.ContentIndex;
+import com.server.client.transfer.BatchCopyEngine;
+
+// Schedules the storage janitor and content index flushes/merges for the lifetime of the web
+// application, and stops the background copy pool and closes the index on undeploy.
+// Tunables (web.xml context params): janitor.intervalMinutes, janitor.maxOpsPerSecond,
+// plus the retention/quota settings read by RetentionPolicy.
+@WebListener
+public class MaintenanceListener implements ServletContextListener {
+
+    private static final long DEFAULT_INTERVAL_MINUTES = 15;
+    private static final long DEFAULT_MAX_OPS_PER_SECOND = 50;
+    // Upper bound on how long newly indexed documents stay only in memory
+    private static final long INDEX_FLUSH_SECONDS = 60;
+
+    private ScheduledExecutorService scheduler;
+    // Separate from the throttled janitor so a long janitor pass never delays index flushes
+    private ScheduledExecutorService indexScheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        long intervalMinutes = Math.max(1, RetentionPolicy.longParam(context, "janitor.intervalMinutes", DEFAULT_INTERVAL_MINUTES));
+        long maxOps = RetentionPolicy.longParam(context, "janitor.maxOpsPerSecond", DEFAULT_MAX_OPS_PER_SECOND);
+
+        StorageJanitor janitor = new StorageJanitor(
+            RetentionPolicy.fromContext(context),
+            new IoThrottle((int) Math.min(Integer.MAX_VALUE, maxOps)),
+            (File) context.getAttribute(ServletContext.TEMPDIR));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-janitor");
+            thread.setDaemon(true);
+            // Background housekeeping should always yield to request threads
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(janitor, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        System.out.println("Storage janitor scheduled every " + intervalMinutes + " minutes");
+
+        ContentIndex index = ContentIndex.getInstance();
+        indexScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        indexScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                index.flush();
+            } catch (IOException e) {
+                System.err.println("Content index flush failed: " + e.getMessage());
+            }
+        }, INDEX_FLUSH_SECONDS, INDEX_FLUSH_SECONDS, TimeUnit.SECONDS);
+        // Segment merges run on the same thread, between flushes
+        index.setMergeExecutor(indexScheduler);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (indexScheduler != null) {
+            indexScheduler.shutdownNow();
+        }
+        BatchCopyEngine.getInstance().shutdown();
+        ContentIndex.getInstance().close();
+        FileCatalog.getInstance().close();
+    }
+}
@@ -0,0 +1,81 @@
+package com.server.client.maintenance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+
+import com.server.client.catalog.OperationCategories;
+
+// Per-category retention and quota limits. Read from web.xml context params:
+//   janitor.retentionDays / janitor.quotaBytes             defaults for every category
+//   janitor.retentionDays.<category> / janitor.quotaBytes.<category>   per-category overrides
+// A value of 0 disables the corresponding limit; both are disabled unless configured, since
+// enabling them deletes users' stored files.
+final class RetentionPolicy {
+
+    private static final long DEFAULT_RETENTION_DAYS = 0;
+    private static final long DEFAULT_QUOTA_BYTES = 0;
+
+    private final long defaultMaxAgeMillis;
+    private final long defaultMaxBytes;
+    private final Map<String, Long> maxAgeMillis = new HashMap<>();
+    private final Map<String, Long> maxBytes = new HashMap<>();
+
+    private RetentionPolicy(long defaultMaxAgeMillis, long defaultMaxBytes) {
+        this.defaultMaxAgeMillis = defaultMaxAgeMillis;
+        this.defaultMaxBytes = defaultMaxBytes;
+    }
+
+    static RetentionPolicy fromContext(ServletContext context) {
+        long retentionDays = longParam(context, "janitor.retentionDays", DEFAULT_RETENTION_DAYS);
+        long quotaBytes = longParam(context, "janitor.quotaBytes", DEFAULT_QUOTA_BYTES);
+        RetentionPolicy policy = new RetentionPolicy(TimeUnit.DAYS.toMillis(retentionDays), quotaBytes);
+
+        for (String category : OperationCategories.names()) {
+            String days = context.getInitParameter("janitor.retentionDays." + category);
+            if (days != null) {
+                policy.maxAgeMillis.put(category, TimeUnit.DAYS.toMillis(parseLong(days, retentionDays)));
+            }
+            String bytes = context.getInitParameter("janitor.quotaBytes." + category);
+            if (bytes != null) {
+                policy.maxBytes.put(category, parseLong(bytes, quotaBytes));
+            }
+        }
+        return policy;
+    }
+
+    // False when no category has any limit, so the janitor can skip stat'ing every stored file
+    boolean isEnabled() {
+        return defaultMaxAgeMillis > 0 || defaultMaxBytes > 0
+            || maxAgeMillis.values().stream().anyMatch(v -> v > 0)
+            || maxBytes.values().stream().anyMatch(v -> v > 0);
+    }
+
+    long maxAgeMillis(String category) {
+        Long value = maxAgeMillis.get(category);
+        return value != null ? value : defaultMaxAgeMillis;
+    }
+
+    long maxBytes(String category) {
+        Long value = maxBytes.get(category);
+        return value != null ? value : defaultMaxBytes;
+    }
+
+    static long longParam(ServletContext context, String name, long defaultValue) {
+        return parseLong(context.getInitParameter(name), defaultValue);
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid janitor setting '" + value + "'");
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.server.client.maintenance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.catalog.FileCatalog;
+import com.server.client.index.ContentIndex;
+import com.server.client.storage.UploadStore;
+
+// One maintenance pass over upload storage:
+//  1. deletes ".part" temp uploads and compressed copies nobody has written to for a while
+//  2. deletes stale multipart spool files left in the container temp directory
+//  3. expires catalog files past their category's retention age
+//  4. evicts the oldest catalog files of any category that is over its size quota
+// Steps 3 and 4 only run when limits are configured. They work from the persisted catalog, so
+// files uploaded before a restart are counted, with sizes and ages read from disk.
+// Every filesystem operation goes through the IoThrottle.
+class StorageJanitor implements Runnable {
+
+    // A temp file untouched this long cannot belong to a live upload
+    private static final long ORPHAN_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Tomcat spools multipart parts as upload_<uuid>_<n>.tmp
+    private static final String SPOOL_PREFIX = "upload_";
+    private static final String SPOOL_SUFFIX = ".tmp";
+
+    private final RetentionPolicy policy;
+    private final IoThrottle throttle;
+    private final File spoolDirectory;
+
+    StorageJanitor(RetentionPolicy policy, IoThrottle throttle, File spoolDirectory) {
+        this.policy = policy;
+        this.throttle = throttle;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    @Override
+    public void run() {
+        // Any exception escaping would cancel the schedule, so contain everything here
+        try {
+            long now = System.currentTimeMillis();
+            int orphans = sweepOrphans(UploadStore.uploadDirectory(), now, true)
+                + sweepOrphans(UploadStore.compressedDirectory(), now, true);
+            int spools = spoolDirectory != null ? sweepOrphans(spoolDirectory.toPath(), now, false) : 0;
+            int expired = policy.isEnabled() ? enforceRetention(now) : 0;
+            System.out.println("Janitor pass: removed " + orphans + " orphaned uploads, " + spools
+                + " spool files, " + expired + " expired/over-quota files");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Janitor pass failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private int sweepOrphans(Path dir, long now, boolean uploadTemps) throws IOException, InterruptedException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                boolean candidate = uploadTemps ? UploadStore.isTempFile(entry) : isSpoolFile(entry);
+                if (!candidate) continue;
+
+                throttle.acquire();
+                try {
+                    long modified = Files.getLastModifiedTime(entry).toMillis();
+                    if (now - modified < ORPHAN_AGE_MILLIS) continue;
+
+                    throttle.acquire();
+                    if (Files.deleteIfExists(entry)) {
+                        removed++;
+                        System.out.println("Janitor removed orphan: " + entry);
+                    }
+                } catch (NoSuchFileException e) {
+                    // Committed or discarded while we were looking
+                } catch (IOException e) {
+                    System.err.println("Janitor could not remove " + entry + ": " + e.getMessage());
+                }
+            }
+        }
+        return removed;
+    }
+
+    private boolean isSpoolFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SPOOL_PREFIX) && name.endsWith(SPOOL_SUFFIX);
+    }
+
+    private int enforceRetention(long now) throws InterruptedException {
+        FileCatalog catalog = FileCatalog.getInstance();
+
+        Map<String, List<StoredFile>> byCategory = new HashMap<>();
+        for (UploadedItem item : catalog.snapshot()) {
+            Path path = pathOf(item);
+            throttle.acquire();
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                byCategory.computeIfAbsent(item.getCategory(), k -> new ArrayList<>())
+                    .add(new StoredFile(item, path, attrs.lastModifiedTime().toMillis(), attrs.size()));
+            } catch (NoSuchFileException e) {
+                // Deleted out from under us - drop the dangling catalog entry
+                catalog.remove(item.getName());
+                unindex(item.getName());
+            } catch (IOException e) {
+                System.err.println("Janitor could not stat " + path + ": " + e.getMessage());
+            }
+        }
+
+        int removed = 0;
+        for (Map.Entry<String, List<StoredFile>> entry : byCategory.entrySet()) {
+            String category = entry.getKey();
+            List<StoredFile> files = entry.getValue();
+            files.sort(Comparator.comparingLong(f -> f.modified));
+
+            long maxAge = policy.maxAgeMillis(category);
+            long maxBytes = policy.maxBytes(category);
+            long totalBytes = 0;
+            for (StoredFile file : files) {
+                totalBytes += file.size;
+            }
+
+            // Oldest first: expire by age, then keep evicting while still over quota
+            for (StoredFile file : files) {
+                boolean expired = maxAge > 0 && now - file.modified > maxAge;
+                boolean overQuota = maxBytes > 0 && totalBytes > maxBytes;
+                if (!expired && !overQuota) break;
+
+                if (evict(catalog, file)) {
+                    totalBytes -= file.size;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private boolean evict(FileCatalog catalog, StoredFile file) throws InterruptedException {
+        String name = file.item.getName();
+        throttle.acquire();
+        // Same lock uploads publish under, so an eviction cannot interleave with a new version
+        Lock nameLock = UploadStore.lockFor(name);
+        nameLock.lock();
+        try {
+            UploadedItem current = catalog.find(name);
+            if (current == null || versionOf(current) != versionOf(file.item)) {
+                // Removed or re-uploaded since the snapshot; the new version is not ours to judge
+                return false;
+            }
+            // Delete before unlisting: if the delete fails (e.g. the file is open on Windows) the
+            // entry stays listed and is retried on the next pass instead of leaving an unlisted file
+            try {
+                Files.deleteIfExists(file.path);
+            } catch (IOException e) {
+                System.err.println("Janitor could not evict " + file.path + ": " + e.getMessage());
+                return false;
+            }
+            catalog.remove(name);
+            unindex(name);
+            try {
+                Files.deleteIfExists(UploadStore.compressedPath(name));
+            } catch (IOException e) {
+                System.err.println("Janitor could not remove compressed copy of " + name + ": " + e.getMessage());
+            }
+            System.out.println("Janitor evicted " + file.path + " (" + file.item.getCategory() + ")");
+            return true;
+        } finally {
+            nameLock.unlock();
+        }
+    }
+
+    private void unindex(String name) {
+        try {
+            ContentIndex.getInstance().remove(name);
+        } catch (IOException e) {
+            System.err.println("Janitor could not unindex " + name + ": " + e.getMessage());
+        }
+    }
+
+    private int versionOf(UploadedItem item) {
+        return item.getFile() != null ? item.getFile().getVersion() : 0;
+    }
+
+    private Path pathOf(UploadedItem item) {
+        String fullPath = item.getFullPath();
+        return (fullPath != null && !fullPath.trim().isEmpty())
+            ? Paths.get(fullPath)
+            : UploadStore.resolve(item.getName());
+    }
+
+    private static final class StoredFile {
+        final UploadedItem item;
+        final Path path;
+        final long modified;
+        final long size;
+
+        StoredFile(UploadedItem item, Path path, long modified, long size) {
+            this.item = item;
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
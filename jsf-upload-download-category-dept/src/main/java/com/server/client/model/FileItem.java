@@ -2,6 +2,10 @@ package com.server.client.model;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 public class FileItem implements Serializable {
     
@@ -11,11 +15,15 @@ public class FileItem implements Serializable {
     private String type;
     private long size;
     private String category;
-    private String uploadDate;
+    // Epoch millis; formatted only when displayed
+    private long uploadTime;
     private String path;
+    private String checksum;
+    // Increments each time a file of the same name is published
+    private int version;
     
     public FileItem() {
-        this.uploadDate = new java.util.Date().toString();
+        this.uploadTime = System.currentTimeMillis();
     }
     
     public FileItem(String name, String type, long size, String category, String path) {
@@ -29,6 +37,10 @@ public class FileItem implements Serializable {
     
     // Format file size in human readable format
     public String getFormattedSize() {
+        return formatSize(size);
+    }
+    
+    public static String formatSize(long size) {
         if (size <= 0) return "0 B";
         
         final String[] units = new String[]{"B", "KB", "MB", "GB", "TB"};
@@ -118,12 +130,29 @@ public class FileItem implements Serializable {
         this.category = category;
     }
     
+    // Same text as Date.toString(), which is what this property has always returned
     public String getUploadDate() {
-        return uploadDate;
+        return new Date(uploadTime).toString();
     }
     
+    // Kept for callers of the old String property. The Date.toString() form names the zone by an
+    // abbreviation that can be ambiguous, so use setUploadTime(); text that does not parse is ignored.
+    @Deprecated
     public void setUploadDate(String uploadDate) {
-        this.uploadDate = uploadDate;
+        if (uploadDate == null) return;
+        try {
+            this.uploadTime = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(uploadDate).getTime();
+        } catch (ParseException e) {
+            // Keep the current upload time
+        }
+    }
+    
+    public long getUploadTime() {
+        return uploadTime;
+    }
+    
+    public void setUploadTime(long uploadTime) {
+        this.uploadTime = uploadTime;
     }
     
     public String getPath() {
@@ -134,6 +163,22 @@ public class FileItem implements Serializable {
         this.path = path;
     }
     
+    public String getChecksum() {
+        return checksum;
+    }
+    
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+    
+    public int getVersion() {
+        return version;
+    }
+    
+    public void setVersion(int version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return "FileItem{" +
@@ -141,8 +186,10 @@ public class FileItem implements Serializable {
                ", type='" + type + '\'' +
                ", size=" + size +
                ", category='" + category + '\'' +
-               ", uploadDate='" + uploadDate + '\'' +
+               ", uploadDate='" + getUploadDate() + '\'' +
                ", path='" + path + '\'' +
+               ", checksum='" + checksum + '\'' +
+               ", version=" + version +
                '}';
     }
     
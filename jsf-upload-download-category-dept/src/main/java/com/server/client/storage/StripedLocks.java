@@ -0,0 +1,27 @@
+package com.server.client.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed pool of locks indexed by key hash. Operations on the same key always share a lock;
+// different keys only contend when they happen to hash to the same stripe.
+final class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+
+    StripedLocks(int stripeCount) {
+        // Power of two so the index is a mask rather than a modulo
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    Lock lockFor(String key) {
+        int h = key.hashCode();
+        // Spread high bits down, as HashMap does, so similar names land on different stripes
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,63 @@
+package com.server.client.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.catalog.FileCatalog;
+import com.server.client.ingest.IngestPipeline;
+
+// Final step of every upload path (form upload, delta upload): under the per-name lock, rename
+// the finished temp file into place and replace the catalog entry, so disk and catalog always
+// agree on which version is current. The pipeline's side outputs (gzip copy, content index) are
+// published last and best-effort: their failure cannot leave the catalog describing old bytes.
+public final class UploadPublisher {
+
+    // expectedChecksum for publishes that replace whatever is current
+    public static final String ANY_CHECKSUM = null;
+
+    private UploadPublisher() {
+    }
+
+    // Returns the published version number. With an expectedChecksum other than ANY_CHECKSUM the
+    // publish only succeeds if the current file still has that SHA-256 (optimistic concurrency for
+    // edits of a stored file). The caller still owns cleanup of the temp file and pipeline if this throws.
+    public static int publish(Path tempFile, UploadedItem entry, IngestPipeline pipeline, String expectedChecksum)
+            throws IOException {
+        String fileName = entry.getName();
+        FileCatalog catalog = FileCatalog.getInstance();
+
+        Lock nameLock = UploadStore.lockFor(fileName);
+        nameLock.lock();
+        try {
+            if (expectedChecksum != null) {
+                String currentChecksum = currentChecksum(catalog.find(fileName));
+                if (!expectedChecksum.equals(currentChecksum)) {
+                    throw new VersionConflictException(fileName, expectedChecksum, currentChecksum);
+                }
+            }
+
+            Path targetFile = UploadStore.commit(tempFile, fileName);
+            String fullPath = targetFile.toAbsolutePath().toString();
+            entry.setFullPath(fullPath);
+            if (entry.getFile() != null) {
+                entry.getFile().setPath(fullPath);
+            }
+            int version = catalog.publish(entry);
+            pipeline.publish();
+            return version;
+        } finally {
+            nameLock.unlock();
+        }
+    }
+
+    // SHA-256 hex recorded by DigestStage, or null if unknown
+    public static String currentChecksum(UploadedItem item) {
+        return (item != null && item.getFile() != null) ? item.getFile().getChecksum() : null;
+    }
+
+    public static int currentVersion(UploadedItem item) {
+        return (item != null && item.getFile() != null) ? item.getFile().getVersion() : 0;
+    }
+}
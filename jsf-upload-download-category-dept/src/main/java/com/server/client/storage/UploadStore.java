@@ -0,0 +1,114 @@
+package com.server.client.storage;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+// Owns the upload directory layout. Uploads are streamed to a hidden temp name and only renamed
+// to their final name on commit, so an aborted transfer never leaves a truncated file behind
+// under a real name - only a ".part" orphan that the janitor can recognise and reclaim.
+//
+// Each upload writes its own uniquely named temp file, so concurrent uploads never share an
+// output stream. Publishing (the rename plus any catalog update) is serialised per file name
+// with lockFor(); the rename is atomic, so readers see either the old or the new version.
+public final class UploadStore {
+
+    // Configurable upload directory - Change this path as needed
+    public static final String UPLOAD_DIRECTORY = "D:\\Example_Project_Doc\\uploads";
+    // Catalog journal, content index and compressed copies. Kept outside the upload directory so
+    // no upload name (e.g. "catalog" or "index") can collide with them - Change this path as needed
+    public static final String METADATA_DIRECTORY = "D:\\Example_Project_Doc\\uploads-meta";
+
+    public static final String TEMP_PREFIX = ".";
+    public static final String TEMP_SUFFIX = ".part";
+    // Optional gzip copies written by the ingest pipeline
+    private static final String COMPRESSED_DIRECTORY = "compressed";
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    // Segments and doc table of the full-text content index
+    private static final String INDEX_DIRECTORY = "index";
+    // Persistent catalog journal (see FileCatalog)
+    private static final String CATALOG_DIRECTORY = "catalog";
+
+    // ".<name>.<uuid>.part"
+    private static final Pattern TEMP_NAME = Pattern.compile(
+        "\\..+\\.[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.part");
+
+    private static final StripedLocks NAME_LOCKS = new StripedLocks(64);
+
+    private UploadStore() {
+    }
+
+    public static Path uploadDirectory() {
+        return Paths.get(UPLOAD_DIRECTORY);
+    }
+
+    public static Path resolve(String fileName) {
+        return uploadDirectory().resolve(fileName);
+    }
+
+    public static Path metadataDirectory() {
+        return Paths.get(METADATA_DIRECTORY);
+    }
+
+    public static Path compressedDirectory() {
+        return metadataDirectory().resolve(COMPRESSED_DIRECTORY);
+    }
+
+    public static Path compressedPath(String fileName) {
+        return compressedDirectory().resolve(fileName + COMPRESSED_SUFFIX);
+    }
+
+    public static Path indexDirectory() {
+        return metadataDirectory().resolve(INDEX_DIRECTORY);
+    }
+
+    public static Path catalogJournal() {
+        return metadataDirectory().resolve(CATALOG_DIRECTORY).resolve("catalog.log");
+    }
+
+    // Temp files live in the upload directory itself so the commit rename never crosses filesystems
+    public static Path createTempFile(String fileName) throws IOException {
+        Path dir = uploadDirectory();
+        if (!Files.exists(dir)) {
+            Files.createDirectories(dir);
+        }
+        return dir.resolve(TEMP_PREFIX + fileName + "." + UUID.randomUUID() + TEMP_SUFFIX);
+    }
+
+    // Hold while publishing or deleting a stored file; uploads of different names do not contend
+    public static Lock lockFor(String fileName) {
+        return NAME_LOCKS.lockFor(fileName);
+    }
+
+    public static Path commit(Path tempFile, String fileName) throws IOException {
+        Path target = resolve(fileName);
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    public static void discard(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            // Left for the janitor to sweep
+            System.err.println("Could not delete temp upload " + tempFile + ": " + e.getMessage());
+        }
+    }
+
+    // Only names createTempFile() can produce; a stored upload that merely starts with "." and
+    // ends with ".part" is not a temp file
+    public static boolean isTempFile(Path file) {
+        return TEMP_NAME.matcher(file.getFileName().toString()).matches();
+    }
+}
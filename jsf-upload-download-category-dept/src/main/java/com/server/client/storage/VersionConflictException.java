@@ -0,0 +1,29 @@
+package com.server.client.storage;
+
+import java.io.IOException;
+
+// A publish that was based on one version of a file found a different version already current.
+// Versions are identified by content checksum (SHA-256 hex), which unlike version numbers never
+// repeats for different content.
+public class VersionConflictException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String expectedChecksum;
+    private final String currentChecksum;
+
+    public VersionConflictException(String fileName, String expectedChecksum, String currentChecksum) {
+        super("Version conflict for " + fileName + ": based on content " + expectedChecksum
+            + " but " + (currentChecksum != null ? "content " + currentChecksum : "no verifiable version") + " is current");
+        this.expectedChecksum = expectedChecksum;
+        this.currentChecksum = currentChecksum;
+    }
+
+    public String getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    public String getCurrentChecksum() {
+        return currentChecksum;
+    }
+}
@@ -0,0 +1,121 @@
+package com.server.client.transfer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Copies a batch of files in parallel on a small shared pool. Each file is copied with
+// FileChannel.transferTo (kernel-side copy where the OS supports it) and succeeds or fails on
+// its own, so one bad file never aborts the rest of the batch, and never damages an existing
+// file at its destination.
+public final class BatchCopyEngine {
+
+    // Disk-bound work: a few concurrent copies saturate most volumes
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // transferTo in slices so progress is reported during large files
+    private static final long TRANSFER_SLICE = 8L * 1024 * 1024;
+
+    private static final BatchCopyEngine INSTANCE = new BatchCopyEngine();
+
+    private final ExecutorService pool;
+
+    private BatchCopyEngine() {
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+            Thread thread = new Thread(runnable, "batch-copy-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static BatchCopyEngine getInstance() {
+        return INSTANCE;
+    }
+
+    public interface ProgressListener {
+        void onProgress(CopyResult result);
+    }
+
+    // Queues every copy and returns at once. The results are in request order and are updated
+    // by the workers as the copies run, so callers can poll them for live per-file progress.
+    public List<CopyResult> submitAll(List<CopyRequest> requests, ProgressListener listener) {
+        List<CopyResult> results = new ArrayList<>(requests.size());
+        for (CopyRequest request : requests) {
+            CopyResult result = new CopyResult(request.getFileName(), request.getTarget().toString());
+            results.add(result);
+            pool.execute(() -> copy(request, result, listener));
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Copies to a temp name next to the target and renames it into place only once complete, so a
+    // failed copy never truncates or half-overwrites a file already at the destination
+    private void copy(CopyRequest request, CopyResult result, ProgressListener listener) {
+        Path source = request.getSource();
+        Path target = request.getTarget();
+        Path tempFile = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+
+                long size = in.size();
+                result.start(size);
+                notify(listener, result);
+
+                long position = 0;
+                while (position < size) {
+                    long transferred = in.transferTo(position, Math.min(TRANSFER_SLICE, size - position), out);
+                    if (transferred <= 0) {
+                        throw new IOException("Copy stalled at byte " + position + " of " + size);
+                    }
+                    position += transferred;
+                    result.progress(transferred);
+                    notify(listener, result);
+                }
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            result.succeed();
+        } catch (IOException | RuntimeException e) {
+            // Nobody waits on the task, so every failure must end up in the result
+            result.fail(e.getMessage() != null ? e.getMessage() : e.toString());
+            System.err.println("Batch copy failed for " + source + ": " + e.getMessage());
+            discard(tempFile);
+        }
+        notify(listener, result);
+    }
+
+    private void discard(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("Could not delete partial copy " + tempFile + ": " + e.getMessage());
+        }
+    }
+
+    private void notify(ProgressListener listener, CopyResult result) {
+        if (listener != null) {
+            listener.onProgress(result);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.server.client.transfer;
+
+import java.nio.file.Path;
+
+// Source and destination of one file in a batch copy
+public class CopyRequest {
+
+    private final String fileName;
+    private final Path source;
+    private final Path target;
+
+    public CopyRequest(String fileName, Path source, Path target) {
+        this.fileName = fileName;
+        this.source = source;
+        this.target = target;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+}
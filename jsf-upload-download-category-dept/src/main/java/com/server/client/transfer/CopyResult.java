@@ -0,0 +1,88 @@
+package com.server.client.transfer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.server.client.model.FileItem;
+
+// Outcome and live progress of one file in a batch copy. Progress fields are updated by the
+// copy worker while the transfer runs, so they can be read from any thread.
+public class CopyResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status { PENDING, COPYING, COPIED, FAILED }
+
+    private final String fileName;
+    private final String targetPath;
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private volatile long totalBytes;
+    private volatile Status status = Status.PENDING;
+    private volatile String message;
+
+    public CopyResult(String fileName, String targetPath) {
+        this.fileName = fileName;
+        this.targetPath = targetPath;
+    }
+
+    void start(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.status = Status.COPYING;
+    }
+
+    void progress(long bytes) {
+        bytesCopied.addAndGet(bytes);
+    }
+
+    void succeed() {
+        this.status = Status.COPIED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        this.status = Status.FAILED;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getTargetPath() {
+        return targetPath;
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getProgressPercent() {
+        long total = totalBytes;
+        if (status == Status.COPIED) return 100;
+        return total > 0 ? (int) (bytesCopied.get() * 100 / total) : 0;
+    }
+
+    public String getFormattedSize() {
+        return FileItem.formatSize(totalBytes);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        Status current = status;
+        return current == Status.COPIED || current == Status.FAILED;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.COPIED;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,117 @@
+package com.server.client.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.server.client.FileUploadBean.UploadedItem;
+import com.server.client.model.FileItem;
+
+// Removing most rows triggers tombstone compaction; rows, their columns and the facet counters
+// must come out exactly as if only the survivors had been added
+public class CompactCatalogTest {
+
+    private static final String[] CATEGORIES = {"Backup", "Firewall", "Routing"};
+    private static final String[] DEPTS = {"NET", "SEC"};
+    private static final String[] TARGETS = {"Router", "Switch", "Server", "Gateway"};
+
+    @Test
+    public void rowsAndFacetsSurviveCompaction() {
+        CompactCatalog rows = new CompactCatalog();
+        for (int i = 0; i < 300; i++) {
+            rows.add(item(i));
+        }
+        // Drop four rows out of five so tombstones outnumber live rows
+        for (int i = 0; i < 300; i++) {
+            if (i % 5 != 0) assertEquals(1, rows.removeAll(name(i)));
+        }
+
+        List<UploadedItem> all = rows.all();
+        assertEquals(60, rows.size());
+        assertEquals(60, all.size());
+        for (int n = 0; n < all.size(); n++) {
+            assertItem(n * 5, all.get(n));
+        }
+
+        Map<String, Integer> categories = new HashMap<>();
+        Map<String, Integer> depts = new HashMap<>();
+        Map<String, Integer> targets = new HashMap<>();
+        for (int i = 0; i < 300; i += 5) {
+            categories.merge(CATEGORIES[i % CATEGORIES.length], 1, Integer::sum);
+            depts.merge(DEPTS[i % DEPTS.length], 1, Integer::sum);
+            targets.merge(TARGETS[i % TARGETS.length], 1, Integer::sum);
+        }
+        assertEquals(categories, rows.categoryCounts());
+        assertEquals(depts, rows.deptCounts());
+        assertEquals(targets, rows.targetCounts());
+        assertEquals((int) depts.get("NET"), rows.deptCount("NET"));
+    }
+
+    @Test
+    public void lookupsAndPagingAfterCompaction() {
+        CompactCatalog rows = new CompactCatalog();
+        for (int i = 0; i < 200; i++) {
+            rows.add(item(i));
+        }
+        for (int i = 0; i < 200; i++) {
+            if (i % 4 != 0) rows.removeAll(name(i));
+        }
+        // Rows added after compaction land behind the survivors
+        rows.add(item(1000));
+
+        assertItem(40, rows.findFirst(name(40)));
+        assertNull(rows.findFirst(name(41)));
+        assertEquals(item(40).getFile().getVersion(), rows.latestVersion(name(40)));
+        assertEquals(0, rows.latestVersion(name(41)));
+
+        List<UploadedItem> page = new ArrayList<>();
+        int total = rows.filter("firewall", "", 2, 3, page);
+        int expected = 0;
+        for (int i = 0; i < 200; i += 4) {
+            if (i % CATEGORIES.length == 1) expected++;
+        }
+        if (1000 % CATEGORIES.length == 1) expected++;
+        assertEquals(expected, total);
+        assertEquals(3, page.size());
+        for (UploadedItem item : page) {
+            assertEquals("Firewall", item.getCategory());
+        }
+    }
+
+    private static String name(int i) {
+        return "config-" + i + ".txt";
+    }
+
+    private static UploadedItem item(int i) {
+        String dept = DEPTS[i % DEPTS.length];
+        UploadedItem item = new UploadedItem(name(i), CATEGORIES[i % CATEGORIES.length], dept,
+            TARGETS[i % TARGETS.length], dept, "/data/uploads/" + name(i));
+        FileItem file = new FileItem(name(i), "text/plain", 1000L + i, item.getCategory(), item.getFullPath());
+        file.setUploadTime(1700000000000L + i);
+        file.setVersion(1 + i % 10);
+        file.setChecksum(String.format("%064x", i));
+        item.setFile(file);
+        return item;
+    }
+
+    private static void assertItem(int i, UploadedItem actual) {
+        UploadedItem expected = item(i);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getDept(), actual.getDept());
+        assertEquals(expected.getTargetObject(), actual.getTargetObject());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getFullPath(), actual.getFullPath());
+        assertEquals(expected.getFile().getType(), actual.getFile().getType());
+        assertEquals(expected.getFile().getSize(), actual.getFile().getSize());
+        assertEquals(expected.getFile().getUploadTime(), actual.getFile().getUploadTime());
+        assertEquals(expected.getFile().getVersion(), actual.getFile().getVersion());
+        assertEquals(expected.getFile().getChecksum(), actual.getFile().getChecksum());
+    }
+}
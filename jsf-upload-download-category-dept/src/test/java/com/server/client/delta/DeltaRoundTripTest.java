@@ -0,0 +1,111 @@
+package com.server.client.delta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// signature -> encode -> apply must rebuild the new bytes exactly
+public class DeltaRoundTripTest {
+
+    private static final int BLOCK_SIZE = BlockSignature.MIN_BLOCK_SIZE;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void rebuildsEditedFile() throws IOException {
+        byte[] base = randomBytes(20 * BLOCK_SIZE + 123, 1);
+        byte[] target = Arrays.copyOf(base, base.length + 700);
+        // Overwrite inside one block, insert mid-block and append, so both copies and literals occur
+        System.arraycopy(randomBytes(40, 2), 0, target, 3 * BLOCK_SIZE + 10, 40);
+        System.arraycopy(base, 7 * BLOCK_SIZE, target, 7 * BLOCK_SIZE + 300, base.length - 7 * BLOCK_SIZE);
+        System.arraycopy(randomBytes(300, 3), 0, target, 7 * BLOCK_SIZE, 300);
+
+        byte[] delta = encode(base, target);
+        assertArrayEquals(target, apply(base, delta));
+        assertTrue("unchanged blocks should be copied, not sent", delta.length < target.length / 4);
+    }
+
+    @Test
+    public void rebuildsIdenticalAndEmptyFiles() throws IOException {
+        byte[] base = randomBytes(5 * BLOCK_SIZE, 4);
+        assertArrayEquals(base, apply(base, encode(base, base)));
+        assertArrayEquals(new byte[0], apply(base, encode(base, new byte[0])));
+        assertArrayEquals(base, apply(new byte[0], encode(new byte[0], base)));
+    }
+
+    @Test
+    public void headerNamesBaseAndTarget() throws IOException {
+        byte[] base = randomBytes(3 * BLOCK_SIZE, 5);
+        byte[] target = randomBytes(2 * BLOCK_SIZE, 6);
+
+        DeltaApplier.Header header = DeltaApplier.readHeader(new ByteArrayInputStream(encode(base, target)));
+        assertEquals(BLOCK_SIZE, header.getBlockSize());
+        assertEquals(sha256(base), header.getBaseChecksum());
+        assertEquals(sha256(target), header.getTargetChecksum());
+    }
+
+    @Test
+    public void signatureSurvivesSerialisation() throws IOException {
+        byte[] base = randomBytes(4 * BLOCK_SIZE + 17, 7);
+        BlockSignature signature = BlockSignature.compute(new ByteArrayInputStream(base), BLOCK_SIZE);
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        signature.writeTo(wire);
+        BlockSignature read = BlockSignature.readFrom(new ByteArrayInputStream(wire.toByteArray()));
+
+        assertEquals(sha256(base), read.getFileChecksum());
+        byte[] target = Arrays.copyOf(base, base.length + 50);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DeltaEncoder.encode(read, new ByteArrayInputStream(target), delta);
+        assertArrayEquals(target, apply(base, delta.toByteArray()));
+    }
+
+    @Test(expected = DeltaFormatException.class)
+    public void rejectsForeignStream() throws IOException {
+        DeltaApplier.readHeader(new ByteArrayInputStream("not a delta at all, just text".getBytes("UTF-8")));
+    }
+
+    private static byte[] encode(byte[] base, byte[] target) throws IOException {
+        BlockSignature signature = BlockSignature.compute(new ByteArrayInputStream(base), BLOCK_SIZE);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DeltaEncoder.encode(signature, new ByteArrayInputStream(target), delta);
+        return delta.toByteArray();
+    }
+
+    private byte[] apply(byte[] base, byte[] delta) throws IOException {
+        Path baseFile = temp.newFile().toPath();
+        Files.write(baseFile, base);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(baseFile, StandardOpenOption.READ)) {
+            InputStream in = new ByteArrayInputStream(delta);
+            DeltaApplier.Header header = DeltaApplier.readHeader(in);
+            new DeltaApplier(Long.MAX_VALUE).apply(header, in, channel, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        return DeltaFormat.hex(DeltaFormat.sha256().digest(data));
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,80 @@
+package com.server.client.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PostingListTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        int[] docIds = {0, 1, 2, 127, 128, 16383, 16384, 2097152, Integer.MAX_VALUE};
+        byte[] encoded = PostingList.encode(docIds, docIds.length);
+        assertArrayEquals(docIds, PostingList.decode(encoded, 0, encoded.length, docIds.length));
+    }
+
+    @Test
+    public void consecutiveIdsCostOneByteEach() {
+        int[] docIds = new int[1000];
+        for (int i = 0; i < docIds.length; i++) docIds[i] = 5000 + i;
+        byte[] encoded = PostingList.encode(docIds, docIds.length);
+        assertEquals(2 + 999, encoded.length);
+        assertArrayEquals(docIds, PostingList.decode(encoded, 0, encoded.length, docIds.length));
+    }
+
+    @Test
+    public void decodesFromAnOffset() {
+        int[] docIds = {3, 9, 400};
+        byte[] encoded = PostingList.encode(docIds, docIds.length);
+        byte[] padded = new byte[encoded.length + 10];
+        System.arraycopy(encoded, 0, padded, 7, encoded.length);
+        assertArrayEquals(docIds, PostingList.decode(padded, 7, encoded.length, docIds.length));
+    }
+
+    @Test
+    public void intersectKeepsCommonIdsInOrder() {
+        assertArrayEquals(new int[] {2, 8},
+            PostingList.intersect(new int[] {1, 2, 5, 8, 13}, new int[] {2, 3, 8, 21}));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[] {1, 3}, new int[] {2, 4}));
+    }
+
+    @Test
+    public void segmentKeepsPostingsOnDisk() throws IOException {
+        Path file = temp.getRoot().toPath().resolve("seg-7.idx");
+        Random random = new Random(11);
+        String[] terms = {"alpha", "db01.example.com", "max_connections", "zeta"};
+        int[][] postings = new int[terms.length][];
+
+        Segment.Writer writer = new Segment.Writer(file, 7, 99999);
+        for (int t = 0; t < terms.length; t++) {
+            postings[t] = new int[50 + t];
+            int docId = 0;
+            for (int i = 0; i < postings[t].length; i++) {
+                docId += 1 + random.nextInt(2000);
+                postings[t][i] = docId;
+            }
+            writer.add(terms[t], postings[t]);
+        }
+        writer.finish().close();
+
+        try (Segment segment = Segment.read(file, 7)) {
+            assertEquals(99999, segment.getMaxDocId());
+            assertEquals(terms.length, segment.termCount());
+            for (int t = 0; t < terms.length; t++) {
+                assertEquals(terms[t], segment.term(t));
+                assertArrayEquals(postings[t], segment.postings(terms[t]));
+            }
+            assertArrayEquals(new int[0], segment.postings("missing"));
+        }
+    }
+}